@@ -0,0 +1,127 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the clusters handling: the wins collection, the cluster
+ * objects construction, the wilds placement and the pay tables.
+ * 
+ * @author Todor Balabanov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ClusterBenchmark {
+	/** Cells of a big cluster, the first four columns of the screen. */
+	private long cells;
+
+	/** Cluster object of the big cluster. */
+	private Cluster cluster;
+
+	/** High paying symbol. */
+	private Symbol high;
+
+	/** High paying symbol code. */
+	private byte code;
+
+	/** Cluster size for the pay tables lookup. */
+	private int count = 0;
+
+	/**
+	 * Preparation of the clusters.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() {
+		code = Screens.code(Symbol.Kind.HIGH);
+		high = Screens.ENGINE.codes()[code];
+		cells = (1L << (4 * Screens.ENGINE.rows())) - 1;
+		cluster = new Cluster(high, 0, 0, Long.bitCount(cells), cells, Screens.ENGINE.rows());
+	}
+
+	/**
+	 * Detection and collection of the wins of a screen.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The number of the paid clusters.
+	 */
+	@Benchmark
+	public int collect(Screens screens) {
+		Game game = screens.game;
+		Clusters clusters = game.detector().mark(screens.next());
+
+		return Screens.ENGINE.collect(game.view(), clusters, screens.prng, game.wins(), game.selected());
+	}
+
+	/**
+	 * Construction of the cluster objects of a screen. The constructor finds
+	 * the center of each cluster.
+	 * 
+	 * @param screens Representative screens.
+	 * @param hole    Consumer of the objects.
+	 */
+	@Benchmark
+	public void construct(Screens screens, Blackhole hole) {
+		Clusters clusters = screens.game.detector().mark(screens.next());
+
+		for (int i = 0; i < clusters.size(); i++) {
+			hole.consume(clusters.cluster(i, Screens.ENGINE.codes(), Screens.ENGINE.rows()));
+		}
+	}
+
+	/**
+	 * Wilds placement in a big cluster over the cells mask.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The wilds mask.
+	 */
+	@Benchmark
+	public long wilds(Screens screens) {
+		return Cluster.wilds(cells, Screens.ENGINE.rules().wilds(Long.bitCount(cells)), screens.prng);
+	}
+
+	/**
+	 * Wilds placement in a big cluster through the cluster object.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The wilds mask.
+	 */
+	@Benchmark
+	public long clusterWilds(Screens screens) {
+		return cluster.wilds(Screens.ENGINE.rules(), screens.prng);
+	}
+
+	/**
+	 * Pay table lookup of the symbol object.
+	 * 
+	 * @return The win multiplier.
+	 */
+	@Benchmark
+	public double symbolMultiplier() {
+		count = (count + 1) % (Screens.ENGINE.columns() * Screens.ENGINE.rows());
+		return high.multiplier(count);
+	}
+
+	/**
+	 * Pay table lookup of the rules tables.
+	 * 
+	 * @return The win in fixed-point units of the bet.
+	 */
+	@Benchmark
+	public long rulesPay() {
+		count = (count + 1) % (Screens.ENGINE.columns() * Screens.ENGINE.rows());
+		return Screens.ENGINE.rules().pay(code, count);
+	}
+}
@@ -0,0 +1,44 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the dragons behaviors over the representative screens.
+ * 
+ * @author Todor Balabanov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DragonBenchmark {
+	/** Dragon to run. */
+	@Param({ "GREEN", "GOLD", "RED" })
+	private Dragon dragon;
+
+	/** Dragon strength. */
+	@Param({ "2", "4" })
+	private int strength;
+
+	/**
+	 * Single dragon run.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The screen.
+	 */
+	@Benchmark
+	public byte[] execute(Screens screens) {
+		byte view[] = screens.next();
+
+		dragon.execute(view, Screens.ENGINE.rows(), Screens.ENGINE.kinds(), strength, screens.prng);
+		return view;
+	}
+}
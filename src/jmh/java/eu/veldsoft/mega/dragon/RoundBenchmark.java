@@ -0,0 +1,46 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of a full game run with all cascades and dragons.
+ * 
+ * @author Todor Balabanov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RoundBenchmark {
+	/** Game state of the benchmark. */
+	private Game game;
+
+	/** Index of the next game run. */
+	private long round = 0;
+
+	/**
+	 * Preparation of the game state.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() {
+		game = Screens.ENGINE.game(false);
+	}
+
+	/**
+	 * Single game run.
+	 * 
+	 * @return The win of the game run.
+	 */
+	@Benchmark
+	public long play() {
+		return Screens.ENGINE.play(game, Screens.SEED, round++);
+	}
+}
@@ -0,0 +1,99 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the screen stages: the spin, the refill after clusters
+ * removal and the clusters detection with both kernels.
+ * 
+ * @author Todor Balabanov
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ScreenBenchmark {
+	/** Single long clusters detection engine. */
+	private Detector narrow;
+
+	/** Multi-word clusters detection engine. */
+	private Detector wide;
+
+	/** Empty cell code. */
+	private byte empty;
+
+	/**
+	 * Preparation of the detection engines.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() {
+		narrow = Detector.create(Screens.ENGINE.columns(), Screens.ENGINE.rows(), Screens.ENGINE.codes(), Screens.ENGINE.rules(), false);
+		wide = Detector.create(Screens.ENGINE.columns(), Screens.ENGINE.rows(), Screens.ENGINE.codes(), Screens.ENGINE.rules(), true);
+		empty = Screens.code(Symbol.Kind.NONE);
+	}
+
+	/**
+	 * Spin of the reels.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The screen.
+	 */
+	@Benchmark
+	public byte[] spin(Screens screens) {
+		Screens.ENGINE.reels().spin(screens.view, screens.game.stops(), screens.prng);
+		return screens.view;
+	}
+
+	/**
+	 * Packing and refill of a screen after the removal of some cells.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The screen.
+	 */
+	@Benchmark
+	public byte[] cascade(Screens screens) {
+		byte view[] = screens.next();
+
+		/* Every second cell of the middle columns is removed. */
+		for (int c = Screens.ENGINE.rows(); c < view.length - Screens.ENGINE.rows(); c += 2) {
+			view[c] = empty;
+		}
+
+		Screens.ENGINE.reels().cascade(view, screens.game.stops(), empty);
+		return view;
+	}
+
+	/**
+	 * Clusters detection with the single long engine.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The clusters.
+	 */
+	@Benchmark
+	public Clusters markNarrow(Screens screens) {
+		return narrow.mark(screens.next());
+	}
+
+	/**
+	 * Clusters detection with the multi-word engine.
+	 * 
+	 * @param screens Representative screens.
+	 * 
+	 * @return The clusters.
+	 */
+	@Benchmark
+	public Clusters markWide(Screens screens) {
+		return wide.mark(screens.next());
+	}
+}
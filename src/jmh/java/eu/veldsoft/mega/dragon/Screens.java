@@ -0,0 +1,95 @@
+package eu.veldsoft.mega.dragon;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Fixed set of representative screens for the benchmarks. The screens are
+ * the spins of the first game runs with a fixed seed, so they are the same
+ * on each benchmark run. Each benchmark invocation takes the next screen of
+ * the set.
+ * 
+ * @author Todor Balabanov
+ */
+@State(Scope.Thread)
+public class Screens {
+	/** Seed of the pseudo-random numbers of the screens. */
+	static final long SEED = 0;
+
+	/** Engine of the original game. */
+	static final Engine ENGINE = new Engine(Definition.standard());
+
+	/** Number of screens in the set. */
+	static final int SIZE = 64;
+
+	/** Screens as they are after the spin. */
+	byte screens[][];
+
+	/** Reels stops of each screen. */
+	int stops[][];
+
+	/** Working game state. */
+	Game game;
+
+	/** Working screen. */
+	byte view[];
+
+	/** Pseudo-random numbers generator of the benchmark. */
+	Generator prng = new SplitMix();
+
+	/** Index of the current screen. */
+	int index = 0;
+
+	/**
+	 * Preparation of the screens.
+	 */
+	@Setup(Level.Trial)
+	public void prepare() {
+		game = ENGINE.game(false);
+		view = game.view();
+		screens = new byte[SIZE][];
+		stops = new int[SIZE][];
+
+		for (int i = 0; i < SIZE; i++) {
+			prng.seed(SEED, i);
+			ENGINE.reels().spin(view, game.stops(), prng);
+
+			screens[i] = view.clone();
+			stops[i] = game.stops().clone();
+		}
+
+		prng.seed(SEED, SIZE);
+	}
+
+	/**
+	 * Code of the first symbol of a particular kind.
+	 * 
+	 * @param kind Kind of the symbol.
+	 * 
+	 * @return The code of the symbol.
+	 */
+	static byte code(Symbol.Kind kind) {
+		byte result = 0;
+		while (ENGINE.kinds()[result] != kind) {
+			result++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Put the next screen of the set in the working game state.
+	 * 
+	 * @return Working screen.
+	 */
+	byte[] next() {
+		index = (index + 1) % SIZE;
+
+		System.arraycopy(screens[index], 0, view, 0, view.length);
+		System.arraycopy(stops[index], 0, game.stops(), 0, stops[index].length);
+
+		return view;
+	}
+}
@@ -0,0 +1,443 @@
+package eu.veldsoft.mega.dragon;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end throughput and scaling benchmark of the simulation. The full
+ * game loop is run for a fixed number of game runs with 1, 2, 4 and so on up
+ * to all available threads. For each number of threads the game runs per
+ * second, the median and the 99th percentile of the time of a single game
+ * run, the allocation rate and the garbage collection pauses are measured.
+ * Only a sample of the game runs is timed one by one, so the timer calls do
+ * not disturb the game loop much. The results are written as JSON and CSV
+ * reports, so different versions can be compared.
+ *
+ * @author Todor Balabanov
+ */
+public class Throughput {
+	/** Number of game runs in each measurement. */
+	private static long ROUNDS = 2_000_000;
+
+	/** Part of the game runs played before each measurement for warm-up. */
+	private static final double WARM_UP = 0.2;
+
+	/** Each game run with index divisible by this number is timed. */
+	private static final long SAMPLING = 16;
+
+	/** Biggest number of latency samples kept by each worker. */
+	private static final int SAMPLES = 1 << 17;
+
+	/** Name of the report files without extension. */
+	private static String REPORT = "throughput";
+
+	/**
+	 * Range of game runs played with time measurement of the sampled game
+	 * runs.
+	 */
+	private static final class Timed extends RecursiveAction {
+		/** Serial version. */
+		private static final long serialVersionUID = 1L;
+
+		/** Largest range of game runs played without further split. */
+		private static final long SIZE = 1_000;
+
+		/**
+		 * Seed of the pseudo-random numbers. It is fixed, so the reports of
+		 * different versions are for the same game runs.
+		 */
+		private static final long SEED = 0;
+
+		/** Latency samples of each worker. */
+		private static final ThreadLocal<long[]> SAMPLED = ThreadLocal
+				.withInitial(() -> new long[SAMPLES + 1]);
+
+		/** All latency samples arrays, in order to be merged at the end. */
+		private static final List<long[]> ALL = new ArrayList<long[]>();
+
+		/** Allocated bytes by all workers. */
+		private static final LongAdder ALLOCATED = new LongAdder();
+
+		/** Engine of the game. */
+		private final Engine engine;
+
+		/** Separate game state for each worker thread. */
+		private final ThreadLocal<Game> games;
+
+		/** Index of the first game run. */
+		private final long from;
+
+		/** Index of the game run after the last one. */
+		private final long to;
+
+		/** Statistics where the results are accumulated. */
+		private final Statistics statistics;
+
+		/**
+		 * Constructor with all parameters.
+		 *
+		 * @param engine
+		 *            Engine of the game.
+		 * @param games
+		 *            Separate game state for each worker thread.
+		 * @param from
+		 *            Index of the first game run.
+		 * @param to
+		 *            Index of the game run after the last one.
+		 * @param statistics
+		 *            Statistics where the results are accumulated.
+		 */
+		Timed(Engine engine, ThreadLocal<Game> games, long from, long to,
+				Statistics statistics) {
+			this.engine = engine;
+			this.games = games;
+			this.from = from;
+			this.to = to;
+			this.statistics = statistics;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > SIZE) {
+				long middle = from + (to - from) / 2;
+				invokeAll(new Timed(engine, games, from, middle, statistics),
+						new Timed(engine, games, middle, to, statistics));
+				return;
+			}
+
+			/* The last element is the number of the samples. */
+			long samples[] = SAMPLED.get();
+			if (samples[SAMPLES] == 0) {
+				synchronized (ALL) {
+					ALL.add(samples);
+				}
+			}
+
+			Game game = games.get();
+			long allocated = allocated();
+			Statistics local = new Statistics();
+			for (long round = from; round < to; round++) {
+				if (round % SAMPLING != 0) {
+					local.add(engine.play(game, SEED, round), game.depth());
+					continue;
+				}
+
+				long start = System.nanoTime();
+				long win = engine.play(game, SEED, round);
+				long time = System.nanoTime() - start;
+				local.add(win, game.depth());
+
+				/*
+				 * The sample is the time of a single game run. When the
+				 * samples are full the oldest are replaced.
+				 */
+				samples[(int) (samples[SAMPLES]++ % SAMPLES)] = time;
+			}
+			ALLOCATED.add(allocated() - allocated);
+
+			statistics.merge(local);
+		}
+
+		/**
+		 * Allocated bytes by the current thread.
+		 *
+		 * @return The number of bytes or zero if it is not supported.
+		 */
+		private static long allocated() {
+			Object bean = ManagementFactory.getThreadMXBean();
+
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				long id = Thread.currentThread().getId();
+				return ((com.sun.management.ThreadMXBean) bean)
+						.getThreadAllocatedBytes(id);
+			}
+
+			return 0;
+		}
+
+		/**
+		 * Remove all samples.
+		 */
+		static void reset() {
+			synchronized (ALL) {
+				for (long samples[] : ALL) {
+					Arrays.fill(samples, 0);
+				}
+				ALL.clear();
+			}
+			ALLOCATED.reset();
+		}
+
+		/**
+		 * All samples in ascending order.
+		 *
+		 * @return The latency samples in nanoseconds.
+		 */
+		static long[] samples() {
+			long result[] = new long[0];
+
+			synchronized (ALL) {
+				for (long samples[] : ALL) {
+					int size = (int) Math.min(samples[SAMPLES], SAMPLES);
+					int length = result.length;
+
+					result = Arrays.copyOf(result, length + size);
+					System.arraycopy(samples, 0, result, length, size);
+				}
+			}
+
+			Arrays.sort(result);
+			return result;
+		}
+
+		/**
+		 * Allocated bytes getter.
+		 *
+		 * @return The bytes allocated by all workers.
+		 */
+		static long total() {
+			return ALLOCATED.sum();
+		}
+	}
+
+	/**
+	 * Result of a single measurement.
+	 */
+	private static final class Measurement {
+		/** Number of threads. */
+		int threads;
+
+		/** Number of measured game runs. */
+		long rounds;
+
+		/** Time of the measurement in seconds. */
+		double seconds;
+
+		/** Median of the time of a single game run in nanoseconds. */
+		long p50;
+
+		/** 99th percentile of the time of a single game run in nanoseconds. */
+		long p99;
+
+		/** Allocated bytes by the workers. */
+		long allocated;
+
+		/** Number of garbage collections. */
+		long collections;
+
+		/** Time of the garbage collections in milliseconds. */
+		long pauses;
+
+		/** Return to player of the measured game runs. */
+		double rtp;
+
+		/**
+		 * Game runs per second.
+		 *
+		 * @return The throughput.
+		 */
+		double throughput() {
+			return rounds / seconds;
+		}
+	}
+
+	/**
+	 * Total number and time of the garbage collections.
+	 *
+	 * @return Pair of the number and the time in milliseconds.
+	 */
+	private static long[] collections() {
+		long result[] = {0, 0};
+
+		for (GarbageCollectorMXBean bean : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			result[0] += Math.max(0, bean.getCollectionCount());
+			result[1] += Math.max(0, bean.getCollectionTime());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Percentile of sorted samples.
+	 *
+	 * @param samples
+	 *            Samples in ascending order.
+	 * @param level
+	 *            Level of the percentile between zero and one.
+	 *
+	 * @return The percentile or zero if there are no samples.
+	 */
+	private static long percentile(long[] samples, double level) {
+		if (samples.length == 0) {
+			return 0;
+		}
+
+		return samples[(int) (level * (samples.length - 1))];
+	}
+
+	/**
+	 * Single run of a number of game runs.
+	 *
+	 * @param engine
+	 *            Engine of the game.
+	 * @param threads
+	 *            Number of threads.
+	 * @param from
+	 *            Index of the first game run.
+	 * @param to
+	 *            Index of the game run after the last one.
+	 *
+	 * @return Measurement result.
+	 */
+	private static Measurement run(Engine engine, int threads, long from,
+			long to) {
+		Measurement result = new Measurement();
+		ThreadLocal<Game> games = ThreadLocal
+				.withInitial(() -> engine.game(false));
+		Statistics statistics = new Statistics();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		Timed.reset();
+		long gc[] = collections();
+		long start = System.nanoTime();
+		pool.invoke(new Timed(engine, games, from, to, statistics));
+		long stop = System.nanoTime();
+		long after[] = collections();
+		pool.shutdown();
+
+		long samples[] = Timed.samples();
+
+		result.threads = threads;
+		result.rounds = to - from;
+		result.seconds = (stop - start) / 1e9;
+		result.p50 = percentile(samples, 0.50);
+		result.p99 = percentile(samples, 0.99);
+		result.allocated = Timed.total();
+		result.collections = after[0] - gc[0];
+		result.pauses = after[1] - gc[1];
+		result.rtp = (double) statistics.sum() / Rules.SCALE
+				/ statistics.numberOfRuns();
+
+		return result;
+	}
+
+	/**
+	 * Write the results as JSON and CSV files.
+	 *
+	 * @param results
+	 *            All measurements.
+	 *
+	 * @throws IOException
+	 *             If the files can not be written.
+	 */
+	private static void write(List<Measurement> results) throws IOException {
+		try (PrintWriter out = new PrintWriter(
+				new FileWriter(REPORT + ".csv"))) {
+			out.println("threads,rounds,seconds,rounds_per_second,p50_ns,"
+					+ "p99_ns,allocated_bytes,bytes_per_round,gc_count,"
+					+ "gc_ms,rtp");
+			for (Measurement result : results) {
+				out.println(result.threads + "," + result.rounds + ","
+						+ result.seconds + "," + result.throughput() + ","
+						+ result.p50 + "," + result.p99 + ","
+						+ result.allocated + ","
+						+ (double) result.allocated / result.rounds + ","
+						+ result.collections + "," + result.pauses + ","
+						+ result.rtp);
+			}
+		}
+
+		try (PrintWriter out = new PrintWriter(
+				new FileWriter(REPORT + ".json"))) {
+			out.println("{");
+			out.println("  \"timestamp\": \"" + Instant.now() + "\",");
+			out.println("  \"java\": \"" + System.getProperty("java.version")
+					+ "\",");
+			out.println("  \"processors\": "
+					+ Runtime.getRuntime().availableProcessors() + ",");
+			out.println("  \"rounds\": " + ROUNDS + ",");
+			out.println("  \"sampling\": " + SAMPLING + ",");
+			out.println("  \"results\": [");
+			for (int i = 0; i < results.size(); i++) {
+				Measurement result = results.get(i);
+				out.println("    {\"threads\": " + result.threads
+						+ ", \"seconds\": " + result.seconds
+						+ ", \"roundsPerSecond\": " + result.throughput()
+						+ ", \"p50Nanos\": " + result.p50 + ", \"p99Nanos\": "
+						+ result.p99 + ", \"allocatedBytes\": "
+						+ result.allocated + ", \"bytesPerSecond\": "
+						+ result.allocated / result.seconds
+						+ ", \"gcCount\": " + result.collections
+						+ ", \"gcMillis\": " + result.pauses + ", \"rtp\": "
+						+ result.rtp + "}"
+						+ (i < results.size() - 1 ? "," : ""));
+			}
+			out.println("  ]");
+			out.println("}");
+		}
+	}
+
+	/**
+	 * Application single entry point method.
+	 *
+	 * @param args
+	 *            Number of game runs in each measurement and name of the
+	 *            report files without extension.
+	 *
+	 * @throws IOException
+	 *             If the reports can not be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0) {
+			ROUNDS = Long.parseLong(args[0]);
+		}
+		if (args.length > 1) {
+			REPORT = args[1];
+		}
+
+		/* The numbers of threads are powers of two and all processors. */
+		List<Integer> counts = new ArrayList<Integer>();
+		int processors = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads < processors; threads *= 2) {
+			counts.add(threads);
+		}
+		counts.add(processors);
+
+		Engine engine = new Engine(Definition.standard());
+		List<Measurement> results = new ArrayList<Measurement>();
+		long round = 0;
+		for (int threads : counts) {
+			/* Warm-up with different game runs. */
+			long warm = (long) (ROUNDS * WARM_UP);
+			run(engine, threads, round, round + warm);
+			round += warm;
+
+			Measurement result = run(engine, threads, round, round + ROUNDS);
+			round += ROUNDS;
+			results.add(result);
+
+			System.out.println(String.format(
+					"%3d threads %12.0f rounds/s p50 %6d ns p99 %6d ns "
+							+ "%8.3f B/round %4d gc %6d ms",
+					result.threads, result.throughput(), result.p50,
+					result.p99, (double) result.allocated / result.rounds,
+					result.collections, result.pauses));
+		}
+
+		write(results);
+	}
+}
@@ -0,0 +1,130 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Game screen cells as bits of a single long value. The cells are numbered
+ * column after column, the same way as in the flat screen array, so a screen
+ * with up to 64 cells is handled with a few shift and mask operations.
+ * 
+ * @author Todor Balabanov
+ */
+final class Bitboard {
+	/** Number of columns on the screen. */
+	private final int columns;
+
+	/** Number of rows on the screen. */
+	private final int rows;
+
+	/** All cells of the screen. */
+	private final long all;
+
+	/** Cells in the first row of each column. */
+	private final long first;
+
+	/** Cells in the last row of each column. */
+	private final long last;
+
+	/**
+	 * Constructor with the screen dimensions.
+	 * 
+	 * @param columns Number of columns on the screen.
+	 * @param rows    Number of rows on the screen.
+	 */
+	public Bitboard(int columns, int rows) {
+		super();
+
+		if (columns * rows > Long.SIZE) {
+			throw new IllegalArgumentException("Screen with " + columns + " columns and " + rows
+					+ " rows does not fit in " + Long.SIZE + " bits.");
+		}
+
+		this.columns = columns;
+		this.rows = rows;
+
+		all = columns * rows == Long.SIZE ? -1L : (1L << (columns * rows)) - 1;
+
+		long first = 0;
+		long last = 0;
+		for (int i = 0; i < columns; i++) {
+			first |= 1L << (i * rows);
+			last |= 1L << (i * rows + rows - 1);
+		}
+		this.first = first;
+		this.last = last;
+	}
+
+	/**
+	 * Number of columns getter.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int columns() {
+		return columns;
+	}
+
+	/**
+	 * Number of rows getter.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int rows() {
+		return rows;
+	}
+
+	/**
+	 * All cells of the screen getter.
+	 * 
+	 * @return Mask with all cells of the screen.
+	 */
+	public long all() {
+		return all;
+	}
+
+	/**
+	 * Cells which are horizontal or vertical neighbors of at least one of the
+	 * given cells.
+	 * 
+	 * @param cells Mask of cells.
+	 * 
+	 * @return Mask of the neighbors. Some of the given cells can be part of the
+	 *         result.
+	 */
+	public long neighbors(long cells) {
+		return (((cells << 1) & ~first) | ((cells >>> 1) & ~last) | (cells << rows) | (cells >>> rows)) & all;
+	}
+
+	/**
+	 * Find connected component by growing the seed cells inside an area.
+	 * 
+	 * @param seed Cells where the growing starts.
+	 * @param area Cells where the growing is allowed.
+	 * 
+	 * @return All cells of the area connected to the seed.
+	 */
+	public long grow(long seed, long area) {
+		long result = seed & area;
+
+		for (long previous = 0; previous != result;) {
+			previous = result;
+			result |= neighbors(result) & area;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find the index of a particular cell in the mask.
+	 * 
+	 * @param cells Mask of cells.
+	 * @param index Index of the cell among the cells in the mask, counted from
+	 *              the lowest one.
+	 * 
+	 * @return Number of the cell on the screen.
+	 */
+	public static int select(long cells, int index) {
+		for (; index > 0; index--) {
+			cells &= cells - 1;
+		}
+
+		return Long.numberOfTrailingZeros(cells);
+	}
+}
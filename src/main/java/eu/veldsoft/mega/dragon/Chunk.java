@@ -0,0 +1,76 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Range of game runs simulated as a single fork-join task. Big ranges are split
+ * in halves, so idle workers can steal the halves. The cascades have very
+ * different length and equal static partitioning keeps some cores idle.
+ *
+ * @author Todor Balabanov
+ */
+final class Chunk extends RecursiveAction {
+	/** Default serial version UID. */
+	private static final long serialVersionUID = 1L;
+
+	/** Number of game runs which are not split any further. */
+	static final long SIZE = 10_000;
+
+	/** First game run in the range. */
+	private long from;
+
+	/** First game run after the range. */
+	private long to;
+
+	/** Simulation where the game runs belong. */
+	private Simulation simulation;
+
+	/** Common statistics where the results of the range are merged. */
+	private Statistics statistics;
+
+	/**
+	 * Constructor with all fields as parameters.
+	 *
+	 * @param simulation
+	 *            Simulation where the game runs belong.
+	 * @param from
+	 *            First game run in the range.
+	 * @param to
+	 *            First game run after the range.
+	 * @param statistics
+	 *            Common statistics where the results are merged.
+	 */
+	public Chunk(Simulation simulation, long from, long to,
+			Statistics statistics) {
+		super();
+
+		this.simulation = simulation;
+		this.from = from;
+		this.to = to;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void compute() {
+		/* Nothing is started after the time budget is spent. */
+		if (simulation.expired() == true) {
+			return;
+		}
+
+		/* Big ranges are split in order to be stolen by idle workers. */
+		if (to - from > SIZE) {
+			long middle = from + (to - from) / 2;
+			invokeAll(new Chunk(simulation, from, middle, statistics),
+					new Chunk(simulation, middle, to, statistics));
+			return;
+		}
+
+		/* The range is accumulated locally and merged only once. */
+		Statistics local = new Statistics();
+		simulation.play(from, to, local);
+		statistics.merge(local);
+	}
+}
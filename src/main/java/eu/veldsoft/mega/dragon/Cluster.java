@@ -1,30 +1,13 @@
 package eu.veldsoft.mega.dragon;
 
-import java.util.List;
-import java.util.Random;
-import java.util.ArrayList;
-import java.util.AbstractMap.SimpleEntry;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * Description of each cluster.
- * 
+ *
  * @author Todor Balabanov
  */
 final class Cluster {
-	/** Pseudo-random number generator instance. */
-	private static final Random PRNG = new Random();
-
-	/**
-	 * Refinement threshold is the number of times when there is no improvement of
-	 * wilds displacements as criteria for refinement stop.
-	 */
-	private static final int REFINEMENT_THRESHOLD = 10;
-
-	/** How many wilds to place according to cluster size. */
-	private static final Map<Integer, Integer> CLUSTER_SIZE_TO_WILDS_AMOUNT = new HashMap<Integer, Integer>();
-
 	/** Cluster symbol. */
 	private Symbol symbol;
 
@@ -37,49 +20,49 @@ final class Cluster {
 	/** Cluster size. */
 	private int count;
 
-	/** Coordinates of the symbols in the cluster, but wilds are excluded. */
-	private List<SimpleEntry<Integer, Integer>> coordinates;
-
-	/** Initialization of the static members. */
-	static {
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(5, 1);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(10, 2);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(15, 3);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(20, 4);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(25, 5);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(30, 6);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(35, 7);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(40, 8);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(45, 9);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(50, 10);
-		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(55, 11);
-	}
+	/**
+	 * Cells of the cluster, wilds included, as bits numbered column after
+	 * column.
+	 */
+	private long cells;
+
+	/** Number of rows on the screen where the cluster is. */
+	private int rows;
 
 	/**
 	 * Constructor with all parameters.
-	 * 
-	 * @param symbol      Cluster symbol.
-	 * @param x           Start of the cluster x coordinate.
-	 * @param y           Start of the cluster y coordinate.
-	 * @param count       Cluster size.
-	 * @param coordinates Coordinates of the symbols in the cluster, but wilds are
-	 *                    excluded.
+	 *
+	 * @param symbol
+	 *            Cluster symbol.
+	 * @param x
+	 *            Start of the cluster x coordinate.
+	 * @param y
+	 *            Start of the cluster y coordinate.
+	 * @param count
+	 *            Cluster size.
+	 * @param cells
+	 *            Cells of the cluster, wilds included, as bits numbered column
+	 *            after column.
+	 * @param rows
+	 *            Number of rows on the screen where the cluster is.
 	 */
-	public Cluster(Symbol symbol, int x, int y, int count, List<SimpleEntry<Integer, Integer>> coordinates) {
+	public Cluster(Symbol symbol, int x, int y, int count, long cells,
+			int rows) {
 		super();
 
 		this.symbol = symbol;
 		this.x = x;
 		this.y = y;
 		this.count = count;
-		coordinates(coordinates);
+		this.cells = cells;
+		this.rows = rows;
 
 		centering();
 	}
 
 	/**
 	 * Cluster symbol getter.
-	 * 
+	 *
 	 * @return The symbol of the cluster.
 	 */
 	public Symbol symbol() {
@@ -88,8 +71,9 @@ final class Cluster {
 
 	/**
 	 * Cluster symbol setter.
-	 * 
-	 * @param symbol The symbol to set.
+	 *
+	 * @param symbol
+	 *            The symbol to set.
 	 */
 	public void symbol(Symbol symbol) {
 		this.symbol = symbol;
@@ -97,7 +81,7 @@ final class Cluster {
 
 	/**
 	 * Cluster start x coordinate getter.
-	 * 
+	 *
 	 * @return The x coordinate of the cluster.
 	 */
 	public int x() {
@@ -106,8 +90,9 @@ final class Cluster {
 
 	/**
 	 * Cluster start x coordinate setter.
-	 * 
-	 * @param x The x coordinate of the cluster.
+	 *
+	 * @param x
+	 *            The x coordinate of the cluster.
 	 */
 	public void x(int x) {
 		this.x = x;
@@ -115,7 +100,7 @@ final class Cluster {
 
 	/**
 	 * Cluster start y coordinate getter.
-	 * 
+	 *
 	 * @return The y coordinate of the cluster.
 	 */
 	public int y() {
@@ -124,8 +109,9 @@ final class Cluster {
 
 	/**
 	 * Cluster start y coordinate setter.
-	 * 
-	 * @param y The y coordinate of the cluster.
+	 *
+	 * @param y
+	 *            The y coordinate of the cluster.
 	 */
 	public void y(int y) {
 		this.y = y;
@@ -133,7 +119,7 @@ final class Cluster {
 
 	/**
 	 * Cluster size getter.
-	 * 
+	 *
 	 * @return The size of the cluster.
 	 */
 	public int count() {
@@ -142,162 +128,177 @@ final class Cluster {
 
 	/**
 	 * Cluster size setter.
-	 * 
-	 * @param count The size of the cluster to set.
+	 *
+	 * @param count
+	 *            The size of the cluster to set.
 	 */
 	public void count(int count) {
 		this.count = count;
 	}
 
 	/**
-	 * Coordinates of the symbols in the cluster getter.
-	 * 
-	 * @return The coordinates of the symbols.
+	 * Cells of the cluster getter.
+	 *
+	 * @return The cells mask of the cluster.
 	 */
-	public List<SimpleEntry<Integer, Integer>> coordinates() {
-		return coordinates;
+	public long cells() {
+		return cells;
 	}
 
 	/**
-	 * Coordinates of the symbols in the cluster getter.
-	 * 
-	 * @param coordinates The coordinates of symbols to set.
+	 * Cells of the cluster setter.
+	 *
+	 * @param cells
+	 *            The cells mask of the cluster to set.
 	 */
-	public void coordinates(List<SimpleEntry<Integer, Integer>> coordinates) {
-		this.coordinates = coordinates;
-
-		/* Sorting is very important in order hash code calculation to work. */
-		boolean done = false;
-		while (done == false) {
-			done = true;
-
-			for (int i = 0; i < this.coordinates.size() - 1; i++) {
-				/* When elements are in proper order do nothing. */
-				if (this.coordinates.get(i).getKey() < this.coordinates.get(i + 1).getKey()) {
-					continue;
-				} else if (this.coordinates.get(i).getKey() == this.coordinates.get(i + 1).getKey()
-						&& this.coordinates.get(i).getValue() < this.coordinates.get(i + 1).getValue()) {
-					continue;
-				}
-
-				/* Swap elements to be in better order. */
-				SimpleEntry<Integer, Integer> value = this.coordinates.get(i);
-				this.coordinates.set(i, this.coordinates.get(i + 1));
-				this.coordinates.set(i + 1, value);
-
-				/* Loop once again. */
-				done = false;
-			}
-		}
+	public void cells(long cells) {
+		this.cells = cells;
 	}
 
 	/**
 	 * Calculate center of the cluster.
-	 * 
-	 * @return Array with two numbers for x and y coordinates.
 	 */
 	public void centering() {
-		int min = Integer.MAX_VALUE;
-		for (SimpleEntry<Integer, Integer> a : coordinates) {
-			int distance = 0;
-			for (SimpleEntry<Integer, Integer> b : coordinates) {
-				/* The distance between the cell itself is zero. */
-				if (a == b) {
-					continue;
-				}
-
-				/* Euclidean distance but without a square root. */
-				distance += (a.getKey() - b.getKey()) * (a.getKey() - b.getKey())
-						+ (a.getValue() - b.getValue()) * (a.getValue() - b.getValue());
-			}
-
-			/* If a shorter distance is found keep cell coordinates. */
-			if (distance < min && symbol.kind() != Symbol.Kind.WILD) {
-				x = a.getKey();
-				y = a.getValue();
-
-				min = distance;
-			}
+		/* Wilds clusters stay at their start. */
+		if (symbol.kind() == Symbol.Kind.WILD) {
+			return;
 		}
+
+		int centre = centre(cells, rows);
+		x = centre / rows;
+		y = centre % rows;
 	}
 
 	/**
-	 * Estimation of wilds number according to cluster size.
+	 * Cell with the smallest total squared distance to all other cells. When
+	 * there are many such cells the first one is taken. The sum of squared
+	 * distances is calculated from the sums of the coordinates in linear time.
+	 *
+	 * @param cells
+	 *            Cells mask of the cluster.
+	 * @param rows
+	 *            Number of rows on the screen.
 	 *
-	 * @return Number of wilds according predefined table.
+	 * @return Index of the center cell.
 	 */
-	public int numberOfWilds() {
-		int result = 0;
+	static int centre(long cells, int rows) {
+		int n = Long.bitCount(cells);
+		int sx = 0, sy = 0;
 
-		for (Map.Entry<Integer, Integer> entry : CLUSTER_SIZE_TO_WILDS_AMOUNT.entrySet()) {
-			/* If the cluster is smaller than the table size value skip it. */
-			if (count < entry.getKey()) {
-				continue;
-			}
+		for (long rest = cells; rest != 0; rest &= rest - 1) {
+			sx += Long.numberOfTrailingZeros(rest) / rows;
+			sy += Long.numberOfTrailingZeros(rest) % rows;
+		}
 
-			/* If the amount is already bigger than the table value skip it. */
-			if (result > entry.getValue()) {
-				continue;
-			}
+		/* The common part of the distance sum is the same for all cells. */
+		int result = -1;
+		int min = Integer.MAX_VALUE;
+		for (long rest = cells; rest != 0; rest &= rest - 1) {
+			int x = Long.numberOfTrailingZeros(rest) / rows;
+			int y = Long.numberOfTrailingZeros(rest) % rows;
 
-			result = entry.getValue();
+			int distance = n * (x * x + y * y) - 2 * (x * sx + y * sy);
+			if (distance < min) {
+				min = distance;
+				result = Long.numberOfTrailingZeros(rest);
+			}
 		}
 
 		return result;
 	}
 
 	/**
-	 * Select coordinates for the wilds but in such way that wilds to be as far from
-	 * each other as possible.
+	 * Estimation of wilds number according to cluster size.
+	 *
+	 * @param rules
+	 *            Game rules with the numbers of wilds of the game definition.
 	 *
-	 * @return List of wilds coordinates.
+	 * @return Number of wilds according the game rules.
 	 */
-	public List<SimpleEntry<Integer, Integer>> wilds() {
-		List<SimpleEntry<Integer, Integer>> result = null;
-
-		int number = numberOfWilds();
-
-		/* If certain times there is no improvement keep the found configuration. */
-		for (int attempt = 0, max = 0; attempt < REFINEMENT_THRESHOLD;) {
-			List<SimpleEntry<Integer, Integer>> wilds = new ArrayList<SimpleEntry<Integer, Integer>>();
-
-			/* Generate a random candidate configuration. */
-			for (int i = 0; i < number && i < coordinates.size(); i++) {
-				SimpleEntry<Integer, Integer> value = null;
-				do {
-					value = coordinates.get(PRNG.nextInt(coordinates.size()));
-				} while (wilds.contains(value));
-				wilds.add(value);
-			}
+	public int numberOfWilds(Rules rules) {
+		return rules.wilds(count);
+	}
 
-			/* Calculate total distance between the cells. */
-			int distance = 0;
-			for (SimpleEntry<Integer, Integer> a : coordinates) {
-				for (SimpleEntry<Integer, Integer> b : coordinates) {
-					/* The distance between the cell itself is zero. */
-					if (a == b) {
-						continue;
-					}
-
-					/* Euclidean distance but without a square root. */
-					distance += (a.getKey() - b.getKey()) * (a.getKey() - b.getKey())
-							+ (a.getValue() - b.getValue()) * (a.getValue() - b.getValue());
-				}
-			}
+	/**
+	 * Select random cells of the cluster for the wilds.
+	 *
+	 * @param rules
+	 *            Game rules with the numbers of wilds of the game definition.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return Mask of the wilds cells.
+	 */
+	public long wilds(Rules rules, Generator prng) {
+		return wilds(cells, numberOfWilds(rules), prng);
+	}
 
-			/* If bigger distance is found just keep it as a possible final solution. */
-			if (max < distance) {
-				max = distance;
-				result = wilds;
-				attempt = 0;
-			} else {
-				attempt++;
-			}
+	/**
+	 * Select random cells of the cluster for the wilds. The wilds were meant to
+	 * be as far from each other as possible, but the refinement compared the
+	 * distances between all cells of the cluster, which are the same for all
+	 * candidates, so the first random candidate was always kept. A single
+	 * random candidate is drawn instead.
+	 *
+	 * @param cells
+	 *            Cells of the cluster, wilds included, as bits numbered column
+	 *            after column.
+	 * @param number
+	 *            Number of wilds to place.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return Mask of the wilds cells.
+	 */
+	static long wilds(long cells, int number, Generator prng) {
+		long result = 0;
+
+		int size = Long.bitCount(cells);
+
+		/* Different cells are taken at random. */
+		for (int i = 0; i < number && i < size; i++) {
+			long value = 0;
+			do {
+				value = 1L << Bitboard.select(cells, prng.nextInt(size));
+			} while ((result & value) != 0);
+			result |= value;
 		}
 
 		return result;
 	}
 
+	/**
+	 * Select random cells for the wilds in a cluster with cells in many words.
+	 * The selection is the same as for the clusters with cells in a single
+	 * word.
+	 *
+	 * @param clusters
+	 *            Clusters information.
+	 * @param index
+	 *            Index of the cluster.
+	 * @param number
+	 *            Number of wilds to place.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 * @param result
+	 *            Mask of the wilds cells.
+	 */
+	static void wilds(Clusters clusters, int index, int number,
+			Generator prng, long result[]) {
+		Arrays.fill(result, 0);
+
+		int size = clusters.count(index);
+
+		/* Different cells are taken at random. */
+		for (int i = 0; i < number && i < size; i++) {
+			int cell = 0;
+			do {
+				cell = clusters.cell(index, prng.nextInt(size));
+			} while ((result[cell >>> 6] & (1L << cell)) != 0);
+			result[cell >>> 6] |= 1L << cell;
+		}
+	}
+
 	/**
 	 * Represent the object content as a string.
 	 */
@@ -308,20 +309,17 @@ final class Cluster {
 
 	/**
 	 * The simplest possible hash code of the object.
-	 * 
+	 *
 	 * @return The hash code.
 	 */
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((coordinates == null) ? 0 : coordinates.hashCode());
-		return result;
+		return Long.hashCode(cells);
 	}
 
 	/**
 	 * Compares two objects.
-	 * 
+	 *
 	 * @return True if they are equal and false otherwise.
 	 */
 	@Override
@@ -333,10 +331,7 @@ final class Cluster {
 		if (getClass() != obj.getClass())
 			return false;
 		Cluster other = (Cluster) obj;
-		if (coordinates == null) {
-			if (other.coordinates != null)
-				return false;
-		} else if (!coordinates.equals(other.coordinates))
+		if (cells != other.cells)
 			return false;
 		return true;
 	}
@@ -0,0 +1,179 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Clusters found on the screen as primitive records in preallocated arrays.
+ * The same object is filled again on each detection, so no memory is
+ * allocated during the game play. The cells of each cluster are kept in one
+ * or more words, according to the size of the screen.
+ * 
+ * @author Todor Balabanov
+ */
+final class Clusters {
+	/** Cells of each cluster, wilds included, as bits numbered column after column. */
+	private final long cells[];
+
+	/** Number of words for the cells of each cluster. */
+	private final int words;
+
+	/** Symbol code of each cluster. */
+	private final byte symbols[];
+
+	/** Number of clusters. */
+	private int size = 0;
+
+	/**
+	 * Constructor with the biggest possible number of clusters.
+	 * 
+	 * @param capacity Maximum number of clusters.
+	 * @param words    Number of words for the cells of each cluster.
+	 */
+	public Clusters(int capacity, int words) {
+		super();
+
+		this.words = words;
+		cells = new long[capacity * words];
+		symbols = new byte[capacity];
+	}
+
+	/**
+	 * Remove all clusters.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Add a cluster at the end.
+	 * 
+	 * @param symbol Symbol code of the cluster.
+	 * @param cells  Cells of the cluster.
+	 */
+	public void add(byte symbol, long cells) {
+		this.symbols[size] = symbol;
+		this.cells[size] = cells;
+		size++;
+	}
+
+	/**
+	 * Add a cluster at the end, when the cells are in many words.
+	 * 
+	 * @param symbol Symbol code of the cluster.
+	 * @param cells  Cells of the cluster.
+	 */
+	public void add(byte symbol, long[] cells) {
+		this.symbols[size] = symbol;
+		System.arraycopy(cells, 0, this.cells, size * words, words);
+		size++;
+	}
+
+	/**
+	 * Number of words getter.
+	 * 
+	 * @return The number of words for the cells of each cluster.
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * Number of clusters getter.
+	 * 
+	 * @return The number of clusters.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Cells of a cluster getter, when the cells are in a single word.
+	 * 
+	 * @param index Index of the cluster.
+	 * 
+	 * @return The cells mask of the cluster.
+	 */
+	public long cells(int index) {
+		return cells[index];
+	}
+
+	/**
+	 * Single word of the cells of a cluster getter.
+	 * 
+	 * @param index Index of the cluster.
+	 * @param word  Index of the word.
+	 * 
+	 * @return The word of the cells mask of the cluster.
+	 */
+	public long cells(int index, int word) {
+		return cells[index * words + word];
+	}
+
+	/**
+	 * Find the index of a particular cell of a cluster.
+	 * 
+	 * @param index Index of the cluster.
+	 * @param order Index of the cell among the cells of the cluster, counted
+	 *              from the lowest one.
+	 * 
+	 * @return Number of the cell on the screen.
+	 */
+	public int cell(int index, int order) {
+		for (int w = 0;; w++) {
+			long word = cells[index * words + w];
+			int count = Long.bitCount(word);
+
+			if (order < count) {
+				return w * Long.SIZE + Bitboard.select(word, order);
+			}
+			order -= count;
+		}
+	}
+
+	/**
+	 * Symbol code of a cluster getter.
+	 * 
+	 * @param index Index of the cluster.
+	 * 
+	 * @return The symbol code of the cluster.
+	 */
+	public byte symbol(int index) {
+		return symbols[index];
+	}
+
+	/**
+	 * Size of a cluster getter.
+	 * 
+	 * @param index Index of the cluster.
+	 * 
+	 * @return The number of cells in the cluster.
+	 */
+	public int count(int index) {
+		if (words == 1) {
+			return Long.bitCount(cells[index]);
+		}
+
+		int result = 0;
+
+		for (int w = index * words; w < (index + 1) * words; w++) {
+			result += Long.bitCount(cells[w]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Cluster as an object, when detailed information is needed out of the game
+	 * play. The cells mask of the object is available only when the cells are
+	 * in a single word.
+	 * 
+	 * @param index Index of the cluster.
+	 * @param codes Symbols references by their codes.
+	 * @param rows  Number of rows on the screen.
+	 * 
+	 * @return Cluster object.
+	 */
+	public Cluster cluster(int index, Symbol[] codes, int rows) {
+		int start = cell(index, 0);
+		return new Cluster(codes[symbols[index]], start / rows, start % rows, count(index),
+				words == 1 ? cells[index] : 0, rows);
+	}
+}
@@ -0,0 +1,250 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Parameters of a single simulation run. The game itself is given by the
+ * definition of the engine, so the same configuration can be run with many
+ * games.
+ *
+ * @author Todor Balabanov
+ */
+public final class Configuration {
+	/** Seed of the pseudo-random numbers for the whole simulation. */
+	private long seed = System.nanoTime();
+
+	/**
+	 * A total number of Monte-Carlo simulation game runs. The simulation can
+	 * stop earlier by the precision or by the time limit.
+	 */
+	private long rounds = 10_000_000;
+
+	/** Number of parallel simulation workers. */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/** Total bet in each game run. */
+	private double bet = 1;
+
+	/**
+	 * Multi-word kernels are used even if the screen fits in a single long
+	 * value, in order the results of the kernels to be compared.
+	 */
+	private boolean wide = false;
+
+	/**
+	 * Number of seconds between two progress reports. There are no reports
+	 * when it is zero.
+	 */
+	private long report = 1;
+
+	/** Confidence level of the interval of the RTP. */
+	private double confidence = 0.95;
+
+	/**
+	 * Target half-width of the confidence interval of the RTP. The simulation
+	 * stops when it is reached. There is no target when it is zero.
+	 */
+	private double precision = 0;
+
+	/**
+	 * Wall-clock budget of the simulation in seconds. There is no budget when
+	 * it is zero.
+	 */
+	private long seconds = 0;
+
+	/**
+	 * Number of game runs between two checks of the target precision. The
+	 * checks are done only at these boundaries, so a seeded run which stops
+	 * by precision always plays the same game runs. The time budget is checked
+	 * more often.
+	 */
+	private long check = 1_000_000;
+
+	/**
+	 * Seed getter.
+	 *
+	 * @return The seed of the pseudo-random numbers.
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * Seed setter.
+	 *
+	 * @param seed
+	 *            The seed of the pseudo-random numbers.
+	 */
+	public void seed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Number of game runs getter.
+	 *
+	 * @return The number of game runs.
+	 */
+	public long rounds() {
+		return rounds;
+	}
+
+	/**
+	 * Number of game runs setter.
+	 *
+	 * @param rounds
+	 *            The number of game runs.
+	 */
+	public void rounds(long rounds) {
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Number of workers getter.
+	 *
+	 * @return The number of threads.
+	 */
+	public int threads() {
+		return threads;
+	}
+
+	/**
+	 * Number of workers setter.
+	 *
+	 * @param threads
+	 *            The number of threads.
+	 */
+	public void threads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Bet getter.
+	 *
+	 * @return The total bet in each game run.
+	 */
+	public double bet() {
+		return bet;
+	}
+
+	/**
+	 * Bet setter.
+	 *
+	 * @param bet
+	 *            The total bet in each game run.
+	 */
+	public void bet(double bet) {
+		this.bet = bet;
+	}
+
+	/**
+	 * Multi-word kernels flag getter.
+	 *
+	 * @return True if the multi-word kernels are used for all screens.
+	 */
+	public boolean wide() {
+		return wide;
+	}
+
+	/**
+	 * Multi-word kernels flag setter.
+	 *
+	 * @param wide
+	 *            True if the multi-word kernels are used for all screens.
+	 */
+	public void wide(boolean wide) {
+		this.wide = wide;
+	}
+
+	/**
+	 * Progress report interval getter.
+	 *
+	 * @return The number of seconds between two reports or zero.
+	 */
+	public long report() {
+		return report;
+	}
+
+	/**
+	 * Progress report interval setter.
+	 *
+	 * @param report
+	 *            The number of seconds between two reports or zero.
+	 */
+	public void report(long report) {
+		this.report = report;
+	}
+
+	/**
+	 * Confidence level getter.
+	 *
+	 * @return The confidence level of the interval, such as 0.95.
+	 */
+	public double confidence() {
+		return confidence;
+	}
+
+	/**
+	 * Confidence level setter.
+	 *
+	 * @param confidence
+	 *            The confidence level of the interval, such as 0.95.
+	 */
+	public void confidence(double confidence) {
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Target precision getter.
+	 *
+	 * @return The target half-width of the confidence interval or zero.
+	 */
+	public double precision() {
+		return precision;
+	}
+
+	/**
+	 * Target precision setter.
+	 *
+	 * @param precision
+	 *            The target half-width of the confidence interval or zero.
+	 */
+	public void precision(double precision) {
+		this.precision = precision;
+	}
+
+	/**
+	 * Time limit getter.
+	 *
+	 * @return The wall-clock budget in seconds or zero.
+	 */
+	public long seconds() {
+		return seconds;
+	}
+
+	/**
+	 * Time limit setter.
+	 *
+	 * @param seconds
+	 *            The wall-clock budget in seconds or zero.
+	 */
+	public void seconds(long seconds) {
+		this.seconds = seconds;
+	}
+
+	/**
+	 * Precision check interval getter.
+	 *
+	 * @return The number of game runs between two checks.
+	 */
+	public long check() {
+		return check;
+	}
+
+	/**
+	 * Precision check interval setter.
+	 *
+	 * @param check
+	 *            The number of game runs between two checks.
+	 */
+	public void check(long check) {
+		this.check = check;
+	}
+}
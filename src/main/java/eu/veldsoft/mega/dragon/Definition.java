@@ -0,0 +1,480 @@
+package eu.veldsoft.mega.dragon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Game definition with the symbols, the pay tables, the reels, the wilds table,
+ * the dragons tables and the size of the screen. The definition is validated
+ * once, when it is created, and it is not changed after that, so a single
+ * definition can be used by many engines. Definitions are loaded from text
+ * files or from their compact binary form.
+ * 
+ * @author Todor Balabanov
+ */
+public final class Definition {
+	/** Resource with the definition of the original game. */
+	private static final String STANDARD = "standard.tsv";
+
+	/** Symbols references by their codes. */
+	private final Symbol codes[];
+
+	/** Kinds of the symbols by their codes. */
+	private final Symbol.Kind kinds[];
+
+	/** Symbols on each reel. */
+	private final Symbol reels[][];
+
+	/** A number of columns on the screen. */
+	private final int columns;
+
+	/** A number of rows on the screen. */
+	private final int rows;
+
+	/** Code of the empty cell on the screen. */
+	private final byte empty;
+
+	/** Code of the wild symbol on the screen. */
+	private final byte wildcard;
+
+	/**
+	 * Smallest cluster sizes in ascending order and the numbers of wilds for
+	 * each of them.
+	 */
+	private final int wilds[][];
+
+	/** Chances of the dragons to appear, by their order in the enumeration. */
+	private final double chances[];
+
+	/**
+	 * Numbers of wilds in ascending order and the strengths for each of them,
+	 * by the order of the dragons in the enumeration.
+	 */
+	private final int strengths[][][];
+
+	/**
+	 * Constructor with all parameters. The symbols are listed by their codes,
+	 * so the identifier of each symbol is its index.
+	 * 
+	 * @param symbols
+	 *            Symbols references by their codes.
+	 * @param reels
+	 *            Symbols on each reel.
+	 * @param columns
+	 *            A number of columns on the screen.
+	 * @param rows
+	 *            A number of rows on the screen.
+	 * @param wilds
+	 *            Smallest cluster sizes in ascending order and the numbers of
+	 *            wilds for each of them.
+	 * @param chances
+	 *            Chances of the dragons to appear, by their order in the
+	 *            enumeration.
+	 * @param strengths
+	 *            Numbers of wilds in ascending order and the strengths for each
+	 *            of them, by the order of the dragons in the enumeration.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the definition is not valid.
+	 */
+	Definition(Symbol[] symbols, Symbol[][] reels, int columns, int rows,
+			int[][] wilds, double[] chances, int[][][] strengths) {
+		super();
+
+		if (columns <= 0 || rows <= 0 || rows >= Long.SIZE) {
+			throw new IllegalArgumentException(
+					"Screen of " + columns + "x" + rows + " is not supported.");
+		}
+		if (reels.length != columns) {
+			throw new IllegalArgumentException("There are " + reels.length
+					+ " reels for " + columns + " columns.");
+		}
+		if (symbols.length > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"Too many symbols " + symbols.length + ".");
+		}
+
+		/* Symbols codes are their identifiers. */
+		int nones = 0;
+		int jokers = 0;
+		byte empty = -1;
+		byte wildcard = -1;
+		codes = symbols.clone();
+		kinds = new Symbol.Kind[symbols.length];
+		for (int k = 0; k < symbols.length; k++) {
+			if (symbols[k] == null || symbols[k].id() != k) {
+				throw new IllegalArgumentException(
+						"Symbol with code " + k + " is missing.");
+			}
+
+			/* The wins are added in fixed-point units of the bet. */
+			for (double pay : symbols[k].pays().values()) {
+				if (exact(pay) == false) {
+					throw new IllegalArgumentException("Pay " + pay + " of "
+							+ symbols[k].name() + " is not a multiple of 1/"
+							+ Rules.SCALE + ".");
+				}
+			}
+
+			kinds[k] = symbols[k].kind();
+			if (kinds[k] == Symbol.Kind.NONE) {
+				empty = (byte) k;
+				nones++;
+			} else if (kinds[k] == Symbol.Kind.WILD) {
+				wildcard = (byte) k;
+				jokers++;
+			}
+		}
+		if (nones != 1 || jokers != 1) {
+			throw new IllegalArgumentException(
+					"Single empty and single wild symbol are needed.");
+		}
+		this.empty = empty;
+		this.wildcard = wildcard;
+
+		/* Reels are copied, because the shuffling changes them. */
+		this.reels = new Symbol[columns][];
+		for (int i = 0; i < columns; i++) {
+			if (reels[i] == null || reels[i].length == 0) {
+				throw new IllegalArgumentException(
+						"Reel " + i + " is empty.");
+			}
+
+			/* The cascade wraps around the reel at most once. */
+			if (reels[i].length < rows) {
+				throw new IllegalArgumentException("Reel " + i + " has "
+						+ reels[i].length + " symbols for " + rows
+						+ " rows.");
+			}
+
+			for (Symbol symbol : reels[i]) {
+				if (symbol == null || symbol.id() < 0
+						|| symbol.id() >= codes.length
+						|| codes[symbol.id()] != symbol
+						|| symbol.kind() == Symbol.Kind.NONE) {
+					throw new IllegalArgumentException(
+							"Reel " + i + " has unknown symbol " + symbol
+									+ ".");
+				}
+			}
+
+			this.reels[i] = reels[i].clone();
+		}
+
+		this.columns = columns;
+		this.rows = rows;
+
+		if (wilds.length != 2 || wilds[0].length != wilds[1].length
+				|| ascending(wilds[0]) == false) {
+			throw new IllegalArgumentException(
+					"Wilds table should have ascending cluster sizes.");
+		}
+		this.wilds = new int[][] { wilds[0].clone(), wilds[1].clone() };
+
+		/* Dragons chances are needed for the alias table. */
+		double total = 0;
+		if (chances.length != Dragon.values().length
+				|| strengths.length != Dragon.values().length) {
+			throw new IllegalArgumentException(
+					"Chances and strengths are needed for each dragon.");
+		}
+		for (double chance : chances) {
+			if (chance < 0 || Double.isFinite(chance) == false) {
+				throw new IllegalArgumentException(
+						"Dragon chance " + chance + " is not valid.");
+			}
+			total += chance;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException(
+					"At least one dragon should have a chance to appear.");
+		}
+		this.chances = chances.clone();
+
+		this.strengths = new int[strengths.length][][];
+		for (int d = 0; d < strengths.length; d++) {
+			if (strengths[d].length != 2
+					|| strengths[d][0].length != strengths[d][1].length
+					|| ascending(strengths[d][0]) == false) {
+				throw new IllegalArgumentException("Strengths of "
+						+ Dragon.values()[d] + " should have ascending wilds.");
+			}
+
+			this.strengths[d] = new int[][] { strengths[d][0].clone(),
+					strengths[d][1].clone() };
+		}
+	}
+
+	/**
+	 * Check that the values are in strictly ascending order.
+	 * 
+	 * @param values
+	 *            The values to check.
+	 * 
+	 * @return True if the values are ascending, false otherwise.
+	 */
+	private static boolean ascending(int[] values) {
+		for (int i = 1; i < values.length; i++) {
+			if (values[i - 1] >= values[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check that a pay is not negative and it is exact in fixed-point units of
+	 * the bet.
+	 * 
+	 * @param pay
+	 *            The win multiplier to check.
+	 * 
+	 * @return True if the pay is exact, false otherwise.
+	 */
+	private static boolean exact(double pay) {
+		if (pay < 0 || Double.isFinite(pay) == false) {
+			return false;
+		}
+
+		try {
+			Rules.units(pay);
+		} catch (ArithmeticException exception) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Definition of the original game.
+	 * 
+	 * @return The game definition.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the definition of the original game is missing.
+	 */
+	public static Definition standard() {
+		try (InputStream in = Definition.class.getResourceAsStream(STANDARD)) {
+			if (in == null) {
+				throw new IllegalStateException(
+						"Resource " + STANDARD + " is missing.");
+			}
+
+			return Loader.parse(in);
+		} catch (IOException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	/**
+	 * Load a definition from a text file or from its binary form. The form is
+	 * recognized by the first bytes of the file.
+	 * 
+	 * @param path
+	 *            Path of the file.
+	 * 
+	 * @return The game definition.
+	 * 
+	 * @throws IOException
+	 *             If the file can not be read.
+	 * @throws IllegalArgumentException
+	 *             If the definition is not valid.
+	 */
+	public static Definition load(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(
+				Files.newInputStream(path))) {
+			if (Loader.binary(in) == true) {
+				return Loader.read(in);
+			}
+
+			return Loader.parse(in);
+		}
+	}
+
+	/**
+	 * Save the definition in its binary form.
+	 * 
+	 * @param path
+	 *            Path of the file.
+	 * 
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void save(Path path) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(
+				Files.newOutputStream(path))) {
+			Loader.write(this, out);
+		}
+	}
+
+	/**
+	 * Sister game with other size of the screen. When there are more columns
+	 * than reels, the reels are used again from the first one.
+	 * 
+	 * @param columns
+	 *            A number of columns on the screen.
+	 * @param rows
+	 *            A number of rows on the screen.
+	 * 
+	 * @return The game definition.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the size is not supported or the reels have fewer symbols
+	 *             than the rows.
+	 */
+	public Definition resize(int columns, int rows) {
+		Symbol reels[][] = new Symbol[columns][];
+		for (int i = 0; i < columns; i++) {
+			reels[i] = this.reels[i % this.reels.length];
+		}
+
+		return new Definition(codes, reels, columns, rows, wilds, chances,
+				strengths);
+	}
+
+	/**
+	 * Symbols references by their codes getter.
+	 * 
+	 * @return The symbols of the game.
+	 */
+	Symbol[] codes() {
+		return codes;
+	}
+
+	/**
+	 * Kinds of the symbols by their codes getter.
+	 * 
+	 * @return The kinds of the symbols.
+	 */
+	Symbol.Kind[] kinds() {
+		return kinds;
+	}
+
+	/**
+	 * Symbols on each reel getter. The reels are copied, so the copy can be
+	 * changed.
+	 * 
+	 * @return The reels.
+	 */
+	Symbol[][] reels() {
+		Symbol result[][] = new Symbol[reels.length][];
+
+		for (int i = 0; i < reels.length; i++) {
+			result[i] = reels[i].clone();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Number of columns on the screen getter.
+	 * 
+	 * @return The number of columns.
+	 */
+	public int columns() {
+		return columns;
+	}
+
+	/**
+	 * Number of rows on the screen getter.
+	 * 
+	 * @return The number of rows.
+	 */
+	public int rows() {
+		return rows;
+	}
+
+	/**
+	 * Code of the empty cell getter.
+	 * 
+	 * @return The code of the empty symbol.
+	 */
+	byte empty() {
+		return empty;
+	}
+
+	/**
+	 * Code of the wild symbol getter.
+	 * 
+	 * @return The code of the wild symbol.
+	 */
+	byte wildcard() {
+		return wildcard;
+	}
+
+	/**
+	 * Number of wilds to place in the place of a winning cluster.
+	 * 
+	 * @param count
+	 *            Size of the cluster.
+	 * 
+	 * @return The number of wilds of the biggest size not bigger than the
+	 *         cluster.
+	 */
+	int wilds(int count) {
+		int result = 0;
+
+		for (int i = 0; i < wilds[0].length && wilds[0][i] <= count; i++) {
+			result = Math.max(result, wilds[1][i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Wilds table getter.
+	 * 
+	 * @return Cluster sizes and the numbers of wilds for each of them.
+	 */
+	int[][] wilds() {
+		return wilds;
+	}
+
+	/**
+	 * Dragon chance getter.
+	 * 
+	 * @return Chances of the dragons by their order in the enumeration.
+	 */
+	double[] chances() {
+		return chances;
+	}
+
+	/**
+	 * Dragon strength according to how many wilds triggered it.
+	 * 
+	 * @param dragon
+	 *            The dragon.
+	 * @param count
+	 *            The number of wilds which triggered the dragon.
+	 * 
+	 * @return The strength of the last pair with less wilds.
+	 */
+	int strength(Dragon dragon, int count) {
+		int table[][] = strengths[dragon.ordinal()];
+		int result = 0;
+
+		for (int i = 0; i < table[0].length; i++) {
+			if (table[0][i] < count) {
+				result = table[1][i];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Dragons strengths tables getter.
+	 * 
+	 * @return Numbers of wilds and the strengths for each of them, by the
+	 *         order of the dragons.
+	 */
+	int[][][] strengths() {
+		return strengths;
+	}
+}
@@ -0,0 +1,51 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Clusters detection engine of a single worker. There are different
+ * implementations according to the size of the screen, but all of them find
+ * the same clusters.
+ * 
+ * The wilds are shared by the clusters of all symbols, when the regular
+ * symbols are part of a single cluster only. Each component of regular symbols
+ * and wilds gives a cluster, which starts from its first regular symbol. Each
+ * other regular symbol of the component, which touches wilds, gives one more
+ * cluster with the wilds connected to it. Each component of wilds gives a
+ * cluster of wilds.
+ * 
+ * Clusters of regular symbols smaller than the smallest paying size of the
+ * symbol have no effect on the game, so they are not created at all.
+ * 
+ * @author Todor Balabanov
+ */
+interface Detector {
+	/**
+	 * Find the clusters on the screen.
+	 * 
+	 * @param view Game screen with symbols codes, column after column.
+	 * 
+	 * @return Clusters information ordered by the cells where they start. The
+	 *         object is reused by the next detection.
+	 */
+	Clusters mark(byte[] view);
+
+	/**
+	 * Create the detection engine which fits the screen size best.
+	 * 
+	 * @param columns Number of columns on the screen.
+	 * @param rows    Number of rows on the screen.
+	 * @param codes   Symbols references by their codes.
+	 * @param rules   Compiled game rules.
+	 * @param wide    Multi-word engine even if the screen fits in a single long
+	 *                value. It is used for comparison of the engines.
+	 * 
+	 * @return Single long engine for screens up to 64 cells and multi-word
+	 *         engine for the bigger ones.
+	 */
+	static Detector create(int columns, int rows, Symbol[] codes, Rules rules, boolean wide) {
+		if (wide == false && columns * rows <= Long.SIZE) {
+			return new NarrowDetector(new Bitboard(columns, rows), codes, rules);
+		}
+
+		return new WideDetector(new WideBoard(columns, rows), codes, rules);
+	}
+}
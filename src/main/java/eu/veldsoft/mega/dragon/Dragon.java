@@ -1,30 +1,86 @@
 package eu.veldsoft.mega.dragon;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
-
 /**
  * Dragon behavior interface.
  * 
  * @author Todor Balabanov
  */
 interface Behavior {
-	/** Pseudo-random number generator instance. */
-	static final Random PRNG = new Random();
-
 	/**
 	 * Dragon behavior is executed over game screen and it modifies it according
 	 * to the dragon's strength.
 	 * 
 	 * @param view
-	 *            Game screen.
-	 * @param symbols
-	 *            List of all possible symbols in the game.
+	 *            Game screen with symbols codes, column after column.
+	 * @param rows
+	 *            Number of rows on the screen.
+	 * @param kinds
+	 *            Kinds of the symbols by their codes.
 	 * @param strength
 	 *            Dragon strength.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	void execute(byte[] view, int rows, Symbol.Kind[] kinds, int strength,
+			Generator prng);
+
+	/**
+	 * Number of cells of the screen with symbols of two particular kinds.
+	 * 
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param kinds
+	 *            Kinds of the symbols by their codes.
+	 * @param first
+	 *            First kind of symbols.
+	 * @param second
+	 *            Second kind of symbols.
+	 * 
+	 * @return Number of the cells.
+	 */
+	static int count(byte[] view, Symbol.Kind[] kinds, Symbol.Kind first,
+			Symbol.Kind second) {
+		int result = 0;
+
+		for (int c = 0; c < view.length; c++) {
+			if (kinds[view[c]] == first || kinds[view[c]] == second) {
+				result++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Find a particular cell among the cells of the screen with symbols of two
+	 * particular kinds.
+	 * 
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param kinds
+	 *            Kinds of the symbols by their codes.
+	 * @param first
+	 *            First kind of symbols.
+	 * @param second
+	 *            Second kind of symbols.
+	 * @param index
+	 *            Index of the cell among these cells, counted from the first
+	 *            one on the screen.
+	 * 
+	 * @return Number of the cell on the screen.
 	 */
-	void execute(Symbol[][] view, List<Symbol> symbols, int strength);
+	static int select(byte[] view, Symbol.Kind[] kinds, Symbol.Kind first,
+			Symbol.Kind second, int index) {
+		for (int c = 0;; c++) {
+			if (kinds[view[c]] != first && kinds[view[c]] != second) {
+				continue;
+			}
+
+			if (index-- == 0) {
+				return c;
+			}
+		}
+	}
 }
 
 /**
@@ -33,76 +89,77 @@ interface Behavior {
  * @author Todor Balabanov
  */
 final class GreenBehavior implements Behavior {
-	/** The number of symbols placed by the dragon. */
-	private int number = 0;
-
 	/**
-	 * A single dragon move for symbol replacement.
+	 * {@inheritDoc}
 	 * 
-	 * @param symbol
-	 *            Replacement symbol.
-	 * @param view
-	 *            Game screen.
-	 * @param x
-	 *            Current x position.
-	 * @param y
-	 *            Current y position.
+	 * The dragon starts from a random high paying or empty cell and flies in
+	 * random directions, replacing the low paying symbols on its way with the
+	 * symbol of the start. The flight ends when the dragon leaves the screen,
+	 * lands on an empty cell or has no more strength. There is no limit of the
+	 * moves, as in the original recursive flight. Without high paying and
+	 * empty cells the dragon does nothing.
 	 */
-	private void move(Symbol symbol, Symbol[][] view, int x, int y) {
-		/* If there is no more strength do not put more symbols. */
-		if (number <= 0) {
-			return;
-		}
+	@Override
+	public void execute(byte[] view, int rows, Symbol.Kind[] kinds,
+			int strength, Generator prng) {
+		int columns = view.length / rows;
 
-		/* Borders checking should be done. */
-		if (x < 0) {
-			return;
-		}
-		if (y < 0) {
-			return;
-		}
-		if (x >= view.length) {
-			return;
-		}
-		if (y >= view[x].length) {
+		/* Without strength there is nothing to be done. */
+		if (strength <= 0) {
 			return;
 		}
 
-		/* Do nothing in empty cells. */
-		if (view[x][y] == null) {
+		/* Find a high paying symbol. */
+		int candidates = Behavior.count(view, kinds, Symbol.Kind.NONE,
+				Symbol.Kind.HIGH);
+		if (candidates == 0) {
 			return;
 		}
+		int start = Behavior.select(view, kinds, Symbol.Kind.NONE,
+				Symbol.Kind.HIGH, prng.nextInt(candidates));
+		byte symbol = view[start];
 
-		/* Transform only low paying symbols. */
-		if (view[x][y].kind() == Symbol.Kind.LOW) {
-			/* Place the same symbol. */
-			view[x][y] = symbol;
-			number--;
-		}
+		/* Start of symbols replacement. */
+		int x = start / rows;
+		int y = start % rows;
 
-		/* Take a random direction. */
-		int dx = PRNG.nextInt(3) - 1;
-		int dy = PRNG.nextInt(3) - 1;
-		move(symbol, view, x - dx, y - dy);
-	}
+		/*
+		 * The flight is a random walk, which ends when the dragon leaves the
+		 * screen, if not earlier. The worst case is not bounded, because the
+		 * dragon may stay in place or fly back and forth without end, but the
+		 * chance of a long flight falls geometrically. Each coordinate moves
+		 * by -1, 0 or +1 with equal chances, so the expected number of moves
+		 * before the dragon leaves the rows is at most 1.5 * ((rows + 1) / 2)
+		 * squared, about 30 for 8 rows, and the same holds for the columns.
+		 */
+		while (true) {
+			/* Do nothing in empty cells. */
+			if (kinds[view[x * rows + y]] == Symbol.Kind.NONE) {
+				return;
+			}
 
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void execute(Symbol[][] view, List<Symbol> symbols, int strength) {
-		int i = -1;
-		int j = -1;
+			/* Transform only low paying symbols. */
+			if (kinds[view[x * rows + y]] == Symbol.Kind.LOW) {
+				/* Place the same symbol. */
+				view[x * rows + y] = symbol;
+				strength--;
+			}
 
-		/* Find a high paying symbol. */
-		do {
-			i = PRNG.nextInt(view.length);
-			j = PRNG.nextInt(view[i].length);
-		} while (view[i][j] != null && view[i][j].kind() != Symbol.Kind.HIGH);
+			/* If there is no more strength do not put more symbols. */
+			if (strength <= 0) {
+				return;
+			}
 
-		/* Start of symbols replacement. */
-		number = strength;
-		move(view[i][j], view, i, j);
+			/* Take a random direction. */
+			int direction = prng.nextInt(9);
+			x -= direction / 3 - 1;
+			y -= direction % 3 - 1;
+
+			/* Borders checking should be done. */
+			if (x < 0 || y < 0 || x >= columns || y >= rows) {
+				return;
+			}
+		}
 	}
 }
 
@@ -112,36 +169,31 @@ final class GreenBehavior implements Behavior {
  * @author Todor Balabanov
  */
 final class GoldBehavior implements Behavior {
-	/** Reference to the wild symbol in the game. */
-	private static Symbol WILD = null;
-
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * Different low paying or empty cells are selected at random and they are
+	 * turned into wilds. When there are not enough such cells all of them are
+	 * turned into wilds.
 	 */
 	@Override
-	public void execute(Symbol[][] view, List<Symbol> symbols, int strength) {
-		/* Lazy initialization of the wild symbol reference. */
-		if (WILD == null) {
-			for (Symbol symbol : symbols) {
-				if (symbol.kind() == Symbol.Kind.WILD) {
-					WILD = symbol;
-					break;
-				}
-			}
+	public void execute(byte[] view, int rows, Symbol.Kind[] kinds,
+			int strength, Generator prng) {
+		/* Find the code of the wild symbol. */
+		byte wild = 0;
+		while (kinds[wild] != Symbol.Kind.WILD) {
+			wild++;
 		}
 
-		while (strength > 0) {
-			int i = PRNG.nextInt(view.length);
-			int j = PRNG.nextInt(view[i].length);
-
-			/* Transform only low paying symbols. */
-			if (view[i][j] != null && view[i][j].kind() != Symbol.Kind.LOW) {
-				continue;
-			}
-
-			view[i][j] = WILD;
-
-			strength--;
+		/*
+		 * Transform only low paying symbols. The wild is not a candidate any
+		 * more, so the cells are different.
+		 */
+		int candidates = Behavior.count(view, kinds, Symbol.Kind.NONE,
+				Symbol.Kind.LOW);
+		for (; strength > 0 && candidates > 0; strength--, candidates--) {
+			view[Behavior.select(view, kinds, Symbol.Kind.NONE,
+					Symbol.Kind.LOW, prng.nextInt(candidates))] = wild;
 		}
 	}
 }
@@ -152,49 +204,99 @@ final class GoldBehavior implements Behavior {
  * @author Todor Balabanov
  */
 final class RedBehavior implements Behavior {
+	/** Horizontal components of the diagonal directions. */
+	private static final int DI[] = {-1, +1, -1, +1};
+
+	/** Vertical components of the diagonal directions. */
+	private static final int DJ[] = {-1, -1, +1, +1};
+
+	/**
+	 * Check that the symbol can be expanded in a particular direction.
+	 * 
+	 * @param i
+	 *            Column of the symbol.
+	 * @param j
+	 *            Row of the symbol.
+	 * @param d
+	 *            Index of the direction.
+	 * @param columns
+	 *            Number of columns on the screen.
+	 * @param rows
+	 *            Number of rows on the screen.
+	 * @param strength
+	 *            Dragon strength.
+	 * 
+	 * @return True if the expansion stays on the screen, false otherwise.
+	 */
+	private static boolean valid(int i, int j, int d, int columns, int rows,
+			int strength) {
+		return i + DI[d] * strength >= 0 && j + DJ[d] * strength >= 0
+				&& i + DI[d] * strength < columns
+				&& j + DJ[d] * strength < rows;
+	}
+
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * A random high paying or empty cell is expanded in a random diagonal
+	 * direction, among the pairs of cell and direction which stay on the
+	 * screen. When there is no such pair the dragon does nothing.
 	 */
 	@Override
-	public void execute(Symbol[][] view, List<Symbol> symbols, int strength) {
-		int i = -1, di = 0;
-		int j = -1, dj = 0;
-
-		/* Select a random direction in which symbol to expand. */
-		do {
-			/* Find a high paying symbol. */
-			do {
-				i = PRNG.nextInt(view.length);
-				j = PRNG.nextInt(view[i].length);
-			} while (view[i][j] != null
-					&& view[i][j].kind() != Symbol.Kind.HIGH);
-
-			switch (PRNG.nextInt(4)) {
-				case 0 :
-					di = -1;
-					dj = -1;
-					break;
-				case 1 :
-					di = +1;
-					dj = -1;
-					break;
-				case 2 :
-					di = -1;
-					dj = +1;
-					break;
-				case 3 :
-					di = +1;
-					dj = +1;
-					break;
+	public void execute(byte[] view, int rows, Symbol.Kind[] kinds,
+			int strength, Generator prng) {
+		int columns = view.length / rows;
+
+		/* Without strength there is nothing to be expanded. */
+		if (strength <= 0) {
+			return;
+		}
+
+		/* Count the anchors, the high paying symbols with valid direction. */
+		int count = 0;
+		for (int c = 0; c < view.length; c++) {
+			if (kinds[view[c]] != Symbol.Kind.NONE
+					&& kinds[view[c]] != Symbol.Kind.HIGH) {
+				continue;
+			}
+
+			for (int d = 0; d < DI.length; d++) {
+				if (valid(c / rows, c % rows, d, columns, rows, strength)) {
+					count++;
+				}
 			}
-		} while (i + di * strength < 0 || j + dj * strength < 0
-				|| i + di * strength >= view.length
-				|| j + dj * strength >= view[i].length);
-
-		/* Expand the symbol. */
-		for (int x = i + di * strength; x != i; x -= di) {
-			for (int y = j + dj * strength; y != j; y -= dj) {
-				view[x][y] = view[i][j];
+		}
+		if (count == 0) {
+			return;
+		}
+
+		/* Select a random anchor. */
+		int index = prng.nextInt(count);
+		for (int c = 0; c < view.length; c++) {
+			if (kinds[view[c]] != Symbol.Kind.NONE
+					&& kinds[view[c]] != Symbol.Kind.HIGH) {
+				continue;
+			}
+
+			int i = c / rows;
+			int j = c % rows;
+
+			for (int d = 0; d < DI.length; d++) {
+				if (valid(i, j, d, columns, rows, strength) == false) {
+					continue;
+				}
+				if (index-- > 0) {
+					continue;
+				}
+
+				/* Expand the symbol. */
+				for (int x = i + DI[d] * strength; x != i; x -= DI[d]) {
+					for (int y = j + DJ[d] * strength; y != j; y -= DJ[d]) {
+						view[x * rows + y] = view[c];
+					}
+				}
+
+				return;
 			}
 		}
 	}
@@ -210,125 +312,155 @@ public enum Dragon {
 	 * When the dragon is not presented this constant helps null pointer not to
 	 * be used.
 	 */
-	NONE(0.0, new int[][]{{}}, null),
-
-	/** Green dragon properties. */
-	GREEN(0.50, new int[][]{{2, 3, 4}, {5, 6, 7}}, new GreenBehavior()),
+	NONE(null),
 
-	/** Gold dragon properties. */
-	GOLD(0.35, new int[][]{{2, 3, 4, 5, 6, 7}, {2, 3, 4, 5, 6, 7}},
-			new GoldBehavior()),
+	/** Green dragon behavior. */
+	GREEN(new GreenBehavior()),
 
-	/** Red dragon properties. */
-	RED(0.15, new int[][]{{2, 3, 4}, {2, 3, 4}}, new RedBehavior());
+	/** Gold dragon behavior. */
+	GOLD(new GoldBehavior()),
 
-	/** Pseudo-random number generator instance. */
-	private static final Random PRNG = new Random();
+	/** Red dragon behavior. */
+	RED(new RedBehavior());
 
-	/** Total cumulative probability for all the dragons. */
-	private static double total = 0;
-
-	/** The probability this particular dragon to appear. */
-	private double probability = 0;
+	/** All dragons, without cloning of the array on each call. */
+	private static final Dragon DRAGONS[] = values();
 
 	/**
-	 * Each dragon has different strength according to how many wilds triggered
-	 * it
+	 * A functional object for dragon behavior.
 	 */
-	private int strength[][] = new int[2][];
+	private Behavior behavior = null;
 
 	/**
-	 * A functional object for dragon behavior.
+	 * Build alias table of the dragons with Vose's alias method.
+	 * 
+	 * @param chances
+	 *            Chances of the dragons to appear, by their order in the
+	 *            enumeration.
+	 * @param cutoffs
+	 *            Output probabilities to keep the dragon of each column.
+	 * @param aliases
+	 *            Output dragons used when the dragon of the column is not kept.
 	 */
-	private Behavior behavior = null;
+	static void alias(double chances[], double cutoffs[], Dragon aliases[]) {
+		double total = 0;
+		for (double chance : chances) {
+			total += chance;
+		}
+
+		/* Vose's alias method with scaled probabilities. */
+		int n = DRAGONS.length;
+		int small[] = new int[n];
+		int large[] = new int[n];
+		int smalls = 0;
+		int larges = 0;
+		for (int i = 0; i < n; i++) {
+			cutoffs[i] = chances[i] * n / total;
+			aliases[i] = DRAGONS[i];
+
+			if (cutoffs[i] < 1) {
+				small[smalls++] = i;
+			} else {
+				large[larges++] = i;
+			}
+		}
+
+		/* Each small column is filled up by a large one. */
+		while (smalls > 0 && larges > 0) {
+			int less = small[--smalls];
+			int more = large[--larges];
+
+			aliases[less] = DRAGONS[more];
+			cutoffs[more] -= 1 - cutoffs[less];
+
+			if (cutoffs[more] < 1) {
+				small[smalls++] = more;
+			} else {
+				large[larges++] = more;
+			}
+		}
 
-	/** Some static members initialization. */
-	static {
-		total = 0;
-		for (Dragon dragon : values()) {
-			total += dragon.probability;
+		/* The rest are full because of the rounding errors. */
+		while (larges > 0) {
+			cutoffs[large[--larges]] = 1;
+		}
+		while (smalls > 0) {
+			cutoffs[small[--smalls]] = 1;
 		}
 	}
 
 	/**
-	 * Pick one of the dragons according to their chances to appear.
+	 * Pick one of the dragons with the alias table of their chances to appear.
+	 * The selection is done in constant time. Dragons without chances to
+	 * appear are never selected.
+	 * 
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 * @param cutoffs
+	 *            Probabilities to keep the dragon of each column.
+	 * @param aliases
+	 *            Dragons used when the dragon of the column is not kept.
 	 * 
 	 * @return A dragon selected after the scrambling.
 	 */
-	public static Dragon scramble() {
-		/*
-		 * Stop level in the cumulative function of the probability
-		 * distribution.
-		 */
-		double threshold = PRNG.nextDouble() * total;
-
-		double level = 0;
-		Dragon result = NONE;
-		for (Dragon dragon : values()) {
-			if (level < threshold) {
-				result = dragon;
-			}
+	static Dragon scramble(Generator prng, double cutoffs[], Dragon aliases[]) {
+		/* The integer part selects the column, the fraction is the level. */
+		double level = prng.nextDouble() * DRAGONS.length;
+		int column = (int) level;
 
-			level += dragon.probability;
+		if (level - column < cutoffs[column]) {
+			return DRAGONS[column];
 		}
 
-		return result;
+		return aliases[column];
 	}
 
 	/**
-	 * A constructor with all fields as parameters.
+	 * A constructor with all fields as parameters. The chances and the
+	 * strengths of the dragons are part of the game definition.
 	 * 
-	 * @param probability
-	 *            The probability this particular dragon to appear.
-	 * @param strength
-	 *            The dragon strength two-dimensional array. The first dimension
-	 *            is the number of wilds used to trigger the dragon. The second
-	 *            dimension is the response of the dragon as its strength.
 	 * @param behavior
 	 *            A functional object for dragon behavior.
 	 */
-	private Dragon(double probability, int strength[][], Behavior behavior) {
-		this.probability = probability;
-		this.strength = strength;
+	private Dragon(Behavior behavior) {
 		this.behavior = behavior;
 	}
 
-	/**
-	 * Get dragon strength according to how many wilds triggered it.
-	 * 
-	 * @param wilds
-	 *            The number of wilds which triggered the dragon.
-	 * 
-	 * @return A dragon strength.
-	 */
-	public int strength(int wilds) {
-		int result = 0;
-
-		/*
-		 * The number of wilds should be in ascending order and the highest
-		 * possible is found.
-		 */
-		for (int i = 0; i < strength[0].length && i < strength[1].length; i++) {
-			if (strength[0][i] < wilds) {
-				result = strength[1][i];
-			}
-		}
-
-		return result;
-	}
-
 	/**
 	 * Dragon behavior is executed over game screen and it modifies it according
-	 * to the dragon's strength.
+	 * to the dragon's strength. The behaviors are called through their final
+	 * classes, so each call is direct and it can be inlined, instead of a
+	 * single interface call with many different targets.
 	 * 
 	 * @param view
-	 *            Game screen.
-	 * @param symbols
-	 *            List of all possible symbols in the game.
+	 *            Game screen with symbols codes, column after column.
+	 * @param rows
+	 *            Number of rows on the screen.
+	 * @param kinds
+	 *            Kinds of the symbols by their codes.
 	 * @param strength
 	 *            Dragon strength.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
 	 */
-	public void execute(Symbol[][] view, List<Symbol> symbols, int strength) {
-		behavior.execute(view, symbols, strength);
+	public void execute(byte[] view, int rows, Symbol.Kind[] kinds,
+			int strength, Generator prng) {
+		switch (this) {
+			case GREEN :
+				((GreenBehavior) behavior).execute(view, rows, kinds, strength,
+						prng);
+				break;
+			case GOLD :
+				((GoldBehavior) behavior).execute(view, rows, kinds, strength,
+						prng);
+				break;
+			case RED :
+				((RedBehavior) behavior).execute(view, rows, kinds, strength,
+						prng);
+				break;
+			default :
+				/* Dragons without behavior do nothing. */
+				break;
+		}
 	}
 }
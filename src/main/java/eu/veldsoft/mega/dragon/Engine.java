@@ -0,0 +1,503 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Simulation engine of a single game definition. The rules and the reels are
+ * prepared once, when the engine is created, and after that the engine can run
+ * many simulations one after another or at the same time. Each simulation has
+ * its own game states and its own workers, so the simulations do not share any
+ * mutable data.
+ *
+ * @author Todor Balabanov
+ */
+public final class Engine {
+	/** Game definition. */
+	private final Definition definition;
+
+	/** Symbols references by their codes. */
+	private final Symbol codes[];
+
+	/** Kinds of the symbols by their codes. */
+	private final Symbol.Kind kinds[];
+
+	/** Code of the empty cell on the screen. */
+	private final byte empty;
+
+	/** Code of the wild symbol on the screen. */
+	private final byte wildcard;
+
+	/** A number of rows on the screen. */
+	private final int rows;
+
+	/** Game rules compiled to flat tables. */
+	private final Rules rules;
+
+	/** Reels with windows tables as they are used during the game play. */
+	private final Reels reels;
+
+	/**
+	 * Constructor with all parameters.
+	 *
+	 * @param definition
+	 *            Game definition.
+	 */
+	public Engine(Definition definition) {
+		super();
+
+		this.definition = definition;
+		codes = definition.codes();
+		kinds = definition.kinds();
+		empty = definition.empty();
+		wildcard = definition.wildcard();
+		rows = definition.rows();
+
+		rules = new Rules(definition);
+		reels = new Reels(definition.reels(), rows);
+	}
+
+	/**
+	 * Game definition getter.
+	 *
+	 * @return The definition of the game.
+	 */
+	public Definition definition() {
+		return definition;
+	}
+
+	/**
+	 * Symbols references by their codes getter.
+	 *
+	 * @return The symbols of the game.
+	 */
+	Symbol[] codes() {
+		return codes;
+	}
+
+	/**
+	 * Kinds of the symbols by their codes getter.
+	 *
+	 * @return The kinds of the symbols.
+	 */
+	Symbol.Kind[] kinds() {
+		return kinds;
+	}
+
+	/**
+	 * Game rules getter.
+	 *
+	 * @return The compiled game rules.
+	 */
+	Rules rules() {
+		return rules;
+	}
+
+	/**
+	 * Game reels getter.
+	 *
+	 * @return The reels with windows tables.
+	 */
+	Reels reels() {
+		return reels;
+	}
+
+	/**
+	 * Number of columns on the screen getter.
+	 *
+	 * @return The number of columns.
+	 */
+	int columns() {
+		return definition.columns();
+	}
+
+	/**
+	 * Number of rows on the screen getter.
+	 *
+	 * @return The number of rows.
+	 */
+	int rows() {
+		return rows;
+	}
+
+	/**
+	 * Code of the empty cell getter.
+	 *
+	 * @return The code of the empty symbol.
+	 */
+	byte empty() {
+		return empty;
+	}
+
+	/**
+	 * Create game state for a worker of this engine.
+	 *
+	 * @param wide
+	 *            Multi-word kernels even if the screen fits in a single long
+	 *            value.
+	 *
+	 * @return The game state.
+	 */
+	Game game(boolean wide) {
+		return new Game(definition.columns(), rows, codes, rules, wide);
+	}
+
+	/**
+	 * Remove a cluster from the screen.
+	 *
+	 * @param clusters
+	 *            Clusters information.
+	 * @param cluster
+	 *            Index of the cluster to be removed.
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param wilds
+	 *            A cluster of wilds flag.
+	 */
+	private void remove(Clusters clusters, int cluster, byte[] view,
+			boolean wilds) {
+		for (int w = 0; w < clusters.words(); w++) {
+			remove(clusters.cells(cluster, w), w * Long.SIZE, view, wilds);
+		}
+	}
+
+	/**
+	 * Remove cells from the screen.
+	 *
+	 * @param cells
+	 *            Cells to be removed, as bits of a single word.
+	 * @param offset
+	 *            Index of the cell of the lowest bit in the word.
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param wilds
+	 *            A cluster of wilds flag.
+	 */
+	private void remove(long cells, int offset, byte[] view, boolean wilds) {
+		for (; cells != 0; cells &= cells - 1) {
+			int index = offset + Long.numberOfTrailingZeros(cells);
+
+			/* Do not handle empty cells. */
+			if (view[index] == empty) {
+				continue;
+			}
+
+			/* Wilds are not removed when the flag is low. */
+			if (kinds[view[index]] == Symbol.Kind.WILD && wilds == false) {
+				continue;
+			}
+
+			view[index] = empty;
+		}
+	}
+
+	/**
+	 * Collect win.
+	 *
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param clusters
+	 *            Clusters information.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 * @param wins
+	 *            Output array with the positive wins in fixed-point units of
+	 *            the bet.
+	 * @param selected
+	 *            Mask of the wilds on screens with many words.
+	 *
+	 * @return Number of the positive wins.
+	 */
+	int collect(byte[] view, Clusters clusters, Generator prng, long wins[],
+			long selected[]) {
+		int result = 0;
+
+		/* Collect each cluster separately. */
+		for (int i = 0; i < clusters.size(); i++) {
+			byte symbol = clusters.symbol(i);
+			long win = rules.pay(symbol, clusters.count(i));
+
+			if (win > 0) {
+				/* Track only a positive win. */
+				wins[result++] = win;
+
+				/* Remove cluster but keep wilds. */
+				remove(clusters, i, view, false);
+
+				/*
+				 * High paying symbols generate wild(s) in the space of the
+				 * winning cluster.
+				 */
+				if (kinds[symbol] == Symbol.Kind.HIGH
+						&& clusters.words() == 1) {
+					for (long cells = Cluster.wilds(clusters.cells(i),
+							rules.wilds(clusters.count(i)), prng); cells != 0;
+							cells &= cells - 1) {
+						view[Long.numberOfTrailingZeros(cells)] = wildcard;
+					}
+				} else if (kinds[symbol] == Symbol.Kind.HIGH) {
+					Cluster.wilds(clusters, i, rules.wilds(clusters.count(i)),
+							prng, selected);
+					for (int w = 0; w < selected.length; w++) {
+						for (long cells = selected[w]; cells != 0; cells &= cells
+								- 1) {
+							view[w * Long.SIZE + Long
+									.numberOfTrailingZeros(cells)] = wildcard;
+						}
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Manipulate the game screen according to dragons rules.
+	 *
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param clusters
+	 *            Clusters information.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return True if dragons ran, false otherwise.
+	 */
+	boolean dragons(byte[] view, Clusters clusters, Generator prng) {
+		boolean result = false;
+
+		for (int i = 0; i < clusters.size(); i++) {
+			/* If cluster is non wild cluster do nothing. */
+			if (kinds[clusters.symbol(i)] != Symbol.Kind.WILD) {
+				continue;
+			}
+
+			/* Execute dragon behavior. */
+			Dragon dragon = rules.scramble(prng);
+			dragon.execute(view, rows, kinds,
+					rules.strength(dragon, clusters.count(i)), prng);
+
+			/* Remove the cluster with wilds. */
+			remove(clusters, i, view, true);
+
+			/* Dragons were available. */
+			result = true;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Shuffle reels in groups according to given size for high and low symbols.
+	 * The windows tables of the reels are rebuilt after the shuffle, so it
+	 * should not be called while a simulation is running.
+	 *
+	 * @param high
+	 *            Size of the high symbols group.
+	 * @param low
+	 *            Size of the low symbols group.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	void shuffle(int high, int low, Generator prng) {
+		int longest = 0;
+		for (Symbol reel[] : reels.symbols()) {
+			longest = Math.max(longest, reel.length);
+		}
+		Shuffler shuffler = new Shuffler(kinds, longest);
+
+		for (Symbol reel[] : reels.symbols()) {
+			/* The shuffling is done over the symbols codes. */
+			byte strip[] = new byte[reel.length];
+			for (int i = 0; i < reel.length; i++) {
+				strip[i] = (byte) reel[i].id();
+			}
+
+			shuffler.shuffle(strip, high, low, prng);
+
+			for (int i = 0; i < reel.length; i++) {
+				reel[i] = codes[strip[i]];
+			}
+		}
+
+		reels.update();
+	}
+
+	/**
+	 * Start a single game run in the base game spin.
+	 *
+	 * @param game
+	 *            Game state of the worker.
+	 * @param seed
+	 *            Seed of the pseudo-random numbers for the whole simulation.
+	 * @param round
+	 *            Index of the game run.
+	 */
+	void start(Game game, long seed, long round) {
+		/* Each game run has its own stream of pseudo-random numbers. */
+		game.prng().seed(seed, round);
+
+		/* Run the game in the base game spin. */
+		reels.spin(game.view(), game.stops(), game.prng());
+		game.win(0);
+		game.depth(0);
+	}
+
+	/**
+	 * Single cascade step of a game run. The wins of the step are added to the
+	 * win of the game run. The wins are in fixed-point units of the bet.
+	 *
+	 * @param game
+	 *            Game state of the worker.
+	 *
+	 * @return Number of the paid clusters. The game run is over when there are
+	 *         no paid clusters.
+	 */
+	int cascade(Game game) {
+		byte[] view = game.view();
+		Generator prng = game.prng();
+		long wins[] = game.wins();
+
+		Clusters clusters = game.detector().mark(view);
+		game.clusters(clusters);
+		int paid = collect(view, clusters, prng, wins, game.selected());
+		reels.cascade(view, game.stops(), empty);
+
+		/* Register wins. An overflow is an error, not a wrong total. */
+		long win = game.win();
+		for (int i = 0; i < paid; i++) {
+			win = Math.addExact(win, wins[i]);
+		}
+		game.win(win);
+		if (paid > 0) {
+			game.depth(game.depth() + 1);
+		}
+
+		dragons(view, clusters, prng);
+
+		return paid;
+	}
+
+	/**
+	 * Play a single game with all cascades.
+	 *
+	 * @param game
+	 *            Game state of the current worker.
+	 * @param seed
+	 *            Seed of the pseudo-random numbers for the whole simulation.
+	 * @param round
+	 *            Index of the game run.
+	 *
+	 * @return Total win in the game in fixed-point units of the bet.
+	 */
+	long play(Game game, long seed, long round) {
+		start(game, seed, round);
+
+		/* Run a regular game. */
+		while (cascade(game) > 0) {
+			/* Cascades continue while there are wins. */
+		}
+
+		return game.win();
+	}
+
+	/**
+	 * Run a simulation and report its progress. When there is a target
+	 * precision the game runs are played in waves of fixed size and after each
+	 * wave the simulation stops if the confidence interval of the RTP is narrow
+	 * enough. Otherwise all game runs are played as a single wave. The time
+	 * budget is checked by the workers inside the waves, so the simulation
+	 * stops soon after the budget is spent, but which game runs are played
+	 * then depends on the timing and it is not reproducible.
+	 *
+	 * @param configuration
+	 *            Parameters of the simulation.
+	 * @param progress
+	 *            Receiver of the partial results, called once for each report
+	 *            interval. It can be null. There are no reports when the
+	 *            interval is not positive.
+	 *
+	 * @return The results of the simulation.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	public Result run(Configuration configuration, Consumer<Result> progress)
+			throws InterruptedException, ExecutionException {
+		Simulation simulation = new Simulation(this, configuration);
+		long seed = configuration.seed();
+		double bet = configuration.bet();
+		double confidence = configuration.confidence();
+		long interval = TimeUnit.SECONDS.toNanos(configuration.report());
+		boolean reports = progress != null && interval > 0;
+		long wave = configuration.precision() > 0
+				? Math.max(1, configuration.check())
+				: configuration.rounds();
+
+		/* Runs are split in chunks which are stolen by the idle workers. */
+		Statistics statistics = new Statistics();
+		ForkJoinPool pool = new ForkJoinPool(configuration.threads());
+		long next = System.nanoTime() + interval;
+
+		try {
+			for (long from = 0; from < configuration.rounds();) {
+				long to = Math.min(configuration.rounds(), from + wave);
+				ForkJoinTask<Void> task = pool
+						.submit(new Chunk(simulation, from, to, statistics));
+				from = to;
+
+				/* Without reports the waiting does not wake up. */
+				while (reports == true && task.isDone() == false) {
+					try {
+						task.get(Math.max(0, next - System.nanoTime()),
+								TimeUnit.NANOSECONDS);
+					} catch (TimeoutException exception) {
+						progress.accept(new Result(seed, bet,
+								statistics.snapshot(), confidence));
+						next += interval;
+					}
+				}
+				task.get();
+
+				/* Precision is checked between the waves. */
+				if (simulation.expired() == true) {
+					break;
+				}
+				if (configuration.precision() > 0
+						&& new Result(seed, bet, statistics, confidence)
+								.halfWidth() <= configuration.precision()) {
+					break;
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		return new Result(seed, bet, statistics, confidence);
+	}
+
+	/**
+	 * Run a simulation without progress reports.
+	 *
+	 * @param configuration
+	 *            Parameters of the simulation.
+	 *
+	 * @return The results of the simulation.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	public Result run(Configuration configuration)
+			throws InterruptedException, ExecutionException {
+		return run(configuration, null);
+	}
+}
@@ -0,0 +1,174 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Game state owned by a single simulation worker. Every worker thread has its
+ * own instance so no screen or reels stops are shared between threads.
+ * 
+ * @author Todor Balabanov
+ */
+final class Game {
+	/**
+	 * Visible screen with the symbols codes. The cells are stored column after
+	 * column in a single flat array.
+	 */
+	private byte view[];
+
+	/** Current stops on the reels. */
+	private int stops[];
+
+	/** Pseudo-random numbers generator of the worker. */
+	private Generator prng = new SplitMix();
+
+	/** Clusters detection engine of the worker. */
+	private Detector detector;
+
+	/**
+	 * Wins of the clusters collected in a single cascade, in fixed-point units
+	 * of the bet.
+	 */
+	private long wins[];
+
+	/** Total win of the current round in fixed-point units of the bet. */
+	private long win = 0;
+
+	/** Number of the cascades with wins in the current round. */
+	private int depth = 0;
+
+	/** Mask of the selected wilds on screens with many words. */
+	private long selected[];
+
+	/** Clusters found by the last cascade step. */
+	private Clusters clusters = null;
+
+	/**
+	 * Constructor with the screen dimensions and the game symbols.
+	 * 
+	 * @param columns Number of columns on the screen.
+	 * @param rows    Number of rows on the screen.
+	 * @param codes   Symbols references by their codes.
+	 * @param rules   Compiled game rules.
+	 * @param wide    Multi-word kernels even if the screen fits in a single long
+	 *                value.
+	 */
+	public Game(int columns, int rows, Symbol[] codes, Rules rules,
+			boolean wide) {
+		super();
+
+		int words = (columns * rows + Long.SIZE - 1) / Long.SIZE;
+
+		view = new byte[columns * rows];
+		stops = new int[columns];
+		detector = Detector.create(columns, rows, codes, rules, wide);
+		wins = new long[columns * rows];
+		selected = new long[words];
+	}
+
+	/**
+	 * Visible screen getter.
+	 * 
+	 * @return The screen with the symbols codes.
+	 */
+	public byte[] view() {
+		return view;
+	}
+
+	/**
+	 * Reels stops getter.
+	 * 
+	 * @return The current stops on the reels.
+	 */
+	public int[] stops() {
+		return stops;
+	}
+
+	/**
+	 * Pseudo-random numbers generator getter.
+	 * 
+	 * @return The generator of the worker.
+	 */
+	public Generator prng() {
+		return prng;
+	}
+
+	/**
+	 * Clusters detection engine getter.
+	 * 
+	 * @return The detector of the worker.
+	 */
+	public Detector detector() {
+		return detector;
+	}
+
+	/**
+	 * Wins of a single cascade getter.
+	 * 
+	 * @return The array for the wins of the collected clusters.
+	 */
+	public long[] wins() {
+		return wins;
+	}
+
+	/**
+	 * Total win of the current round getter.
+	 * 
+	 * @return The win of the round so far in fixed-point units of the bet.
+	 */
+	public long win() {
+		return win;
+	}
+
+	/**
+	 * Total win of the current round setter.
+	 * 
+	 * @param win The win of the round so far in fixed-point units of the bet.
+	 */
+	public void win(long win) {
+		this.win = win;
+	}
+
+	/**
+	 * Cascade depth of the current round getter.
+	 * 
+	 * @return The number of the cascades with wins so far.
+	 */
+	public int depth() {
+		return depth;
+	}
+
+	/**
+	 * Cascade depth of the current round setter.
+	 * 
+	 * @param depth The number of the cascades with wins so far.
+	 */
+	public void depth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * Mask of the selected wilds getter.
+	 * 
+	 * @return The mask used on screens with many words.
+	 */
+	public long[] selected() {
+		return selected;
+	}
+
+	/**
+	 * Clusters of the last cascade step getter.
+	 * 
+	 * @return The clusters found by the last detection. They are valid until
+	 *         the next cascade step.
+	 */
+	public Clusters clusters() {
+		return clusters;
+	}
+
+	/**
+	 * Clusters of the last cascade step setter.
+	 * 
+	 * @param clusters The clusters found by the last detection.
+	 */
+	public void clusters(Clusters clusters) {
+		this.clusters = clusters;
+	}
+}
@@ -0,0 +1,60 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Pseudo-random numbers generator used by the game. The generator is
+ * positioned by a seed and a game run index, so each game run can be
+ * recomputed alone and the results do not depend on the number of threads.
+ * 
+ * @author Todor Balabanov
+ */
+interface Generator {
+	/**
+	 * Position the generator at the beginning of the numbers stream for a
+	 * particular game run.
+	 * 
+	 * @param seed
+	 *            Seed of the whole simulation.
+	 * @param round
+	 *            Index of the game run.
+	 */
+	void seed(long seed, long round);
+
+	/**
+	 * Next 64 bits pseudo-random number.
+	 * 
+	 * @return Uniformly distributed long value.
+	 */
+	long nextLong();
+
+	/**
+	 * Next pseudo-random number in a range.
+	 * 
+	 * @param bound
+	 *            Upper limit (exclusive) of the number. It should be positive.
+	 * 
+	 * @return Uniformly distributed value between zero (inclusive) and the
+	 *         bound (exclusive).
+	 */
+	default int nextInt(int bound) {
+		/* Multiply and shift with rejection of the biased values. */
+		long product = (nextLong() >>> 32) * bound;
+		if ((product & 0xFFFFFFFFL) < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while ((product & 0xFFFFFFFFL) < threshold) {
+				product = (nextLong() >>> 32) * bound;
+			}
+		}
+
+		return (int) (product >>> 32);
+	}
+
+	/**
+	 * Next pseudo-random floating point number.
+	 * 
+	 * @return Uniformly distributed value between zero (inclusive) and one
+	 *         (exclusive).
+	 */
+	default double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+}
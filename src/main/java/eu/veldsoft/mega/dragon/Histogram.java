@@ -0,0 +1,133 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Distribution of non-negative values in logarithmic buckets. Each power of
+ * two is split in equal sub-buckets, so the relative width of all buckets is
+ * the same. The bucket of a value is found from the bits of its floating point
+ * form without any logarithm. Each worker fills its own histogram and the
+ * histograms are merged by the addition of the counters, so nothing is lost.
+ *
+ * @author Todor Balabanov
+ */
+public final class Histogram {
+	/** Bits of the mantissa used for the sub-buckets of a power of two. */
+	private static final int BITS = 2;
+
+	/** Number of sub-buckets of a power of two. */
+	private static final int SUBS = 1 << BITS;
+
+	/** Smallest power of two with buckets. */
+	private static final int MIN = -16;
+
+	/** Biggest power of two with buckets. */
+	private static final int MAX = 31;
+
+	/**
+	 * Counters of the buckets. The first one is for the zero values, the
+	 * second one is for the positive values smaller than the smallest power of
+	 * two and the last one is for the values not smaller than the power of two
+	 * after the biggest one.
+	 */
+	private final long counts[] = new long[3 + (MAX - MIN + 1) * SUBS];
+
+	/**
+	 * Register a single value.
+	 *
+	 * @param value
+	 *            The non-negative value.
+	 */
+	void add(double value) {
+		if (value <= 0) {
+			counts[0]++;
+			return;
+		}
+
+		/* Exponent and the highest bits of the mantissa give the bucket. */
+		long bits = Double.doubleToRawLongBits(value);
+		int exponent = (int) ((bits >>> 52) & 0x7FF) - 1023;
+
+		if (exponent < MIN) {
+			counts[1]++;
+		} else if (exponent > MAX) {
+			counts[counts.length - 1]++;
+		} else {
+			counts[2 + (exponent - MIN) * SUBS
+					+ (int) ((bits >>> (52 - BITS)) & (SUBS - 1))]++;
+		}
+	}
+
+	/**
+	 * Add the counters of another histogram to this one.
+	 *
+	 * @param other
+	 *            The histogram to merge.
+	 */
+	void merge(Histogram other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+	}
+
+	/**
+	 * Number of buckets getter.
+	 *
+	 * @return The number of buckets, together with the zero bucket.
+	 */
+	public int size() {
+		return counts.length;
+	}
+
+	/**
+	 * Bucket counter getter.
+	 *
+	 * @param index
+	 *            Index of the bucket.
+	 *
+	 * @return The number of values in the bucket.
+	 */
+	public long count(int index) {
+		return counts[index];
+	}
+
+	/**
+	 * Lower bound of a bucket.
+	 *
+	 * @param index
+	 *            Index of the bucket.
+	 *
+	 * @return The smallest value in the bucket. It is zero for the zero bucket
+	 *         and for the bucket of the smallest values.
+	 */
+	public double lower(int index) {
+		if (index <= 1) {
+			return 0;
+		}
+
+		return Math.scalb(1 + (double) ((index - 2) % SUBS) / SUBS,
+				MIN + (index - 2) / SUBS);
+	}
+
+	/**
+	 * Upper bound of a bucket.
+	 *
+	 * @param index
+	 *            Index of the bucket.
+	 *
+	 * @return The first value after the bucket, zero for the zero bucket or
+	 *         infinity for the bucket of the biggest values.
+	 */
+	public double upper(int index) {
+		if (index == 0) {
+			return 0;
+		}
+		if (index == 1) {
+			return Math.scalb(1.0, MIN);
+		}
+		if (index == counts.length - 1) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return Math.scalb(1 + (double) ((index - 2) % SUBS + 1) / SUBS,
+				MIN + (index - 2) / SUBS);
+	}
+}
@@ -0,0 +1,440 @@
+package eu.veldsoft.mega.dragon;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader and writer of the game definitions. The text form has sections for
+ * the screen, the symbols, the wilds, the dragons and the reels, with values
+ * separated by tabs, so it can be exported from the reels sheet. The binary
+ * form has the same information with symbols codes instead of names, so it is
+ * loaded without any text parsing.
+ * 
+ * @author Todor Balabanov
+ */
+public final class Loader {
+	/** First bytes of the binary form. */
+	private static final int MAGIC = 0x4D444744;
+
+	/** Version of the binary form. */
+	private static final int VERSION = 1;
+
+	/** Biggest number of values in a table of the binary form. */
+	private static final int LIMIT = 1 << 16;
+
+	/**
+	 * Check the first bytes of a stream for the binary form. The stream
+	 * position is not changed.
+	 * 
+	 * @param in
+	 *            Stream with mark support.
+	 * 
+	 * @return True if the stream has binary form, false otherwise.
+	 * 
+	 * @throws IOException
+	 *             If the stream can not be read.
+	 */
+	static boolean binary(InputStream in) throws IOException {
+		in.mark(Integer.BYTES);
+		int magic = 0;
+		for (int i = 0; i < Integer.BYTES; i++) {
+			magic = (magic << Byte.SIZE) | (in.read() & 0xFF);
+		}
+		in.reset();
+
+		return magic == MAGIC;
+	}
+
+	/**
+	 * Read the number of values in a table of the binary form.
+	 * 
+	 * @param data
+	 *            Stream with the binary form.
+	 * @param limit
+	 *            Biggest valid number of values.
+	 * @param table
+	 *            Name of the table for the error message.
+	 * 
+	 * @return The number of values.
+	 * 
+	 * @throws IOException
+	 *             If the stream can not be read.
+	 * @throws IllegalArgumentException
+	 *             If the number is negative or too big.
+	 */
+	private static int count(DataInputStream data, int limit, String table)
+			throws IOException {
+		int result = data.readInt();
+
+		/* Corrupted numbers should not allocate huge arrays. */
+		if (result < 0 || result > limit) {
+			throw new IllegalArgumentException("Number of " + table + " "
+					+ result + " is not valid.");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Pairs of values separated by colon.
+	 * 
+	 * @param fields
+	 *            Fields of the line.
+	 * @param from
+	 *            Index of the first pair.
+	 * 
+	 * @return Keys and values as two arrays.
+	 */
+	private static String[][] pairs(String[] fields, int from) {
+		String result[][] = new String[2][fields.length - from];
+
+		for (int i = from; i < fields.length; i++) {
+			String pair[] = fields[i].split(":");
+			if (pair.length != 2) {
+				throw new IllegalArgumentException(
+						fields[i] + " is not a pair.");
+			}
+
+			result[0][i - from] = pair[0].trim();
+			result[1][i - from] = pair[1].trim();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Integer values of text values.
+	 * 
+	 * @param values
+	 *            Text values.
+	 * 
+	 * @return The numbers.
+	 */
+	private static int[] integers(String[] values) {
+		int result[] = new int[values.length];
+
+		for (int i = 0; i < values.length; i++) {
+			result[i] = Integer.parseInt(values[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parse the text form of a definition.
+	 * 
+	 * @param in
+	 *            Stream with the text in UTF-8.
+	 * 
+	 * @return The game definition.
+	 * 
+	 * @throws IOException
+	 *             If the stream can not be read.
+	 * @throws IllegalArgumentException
+	 *             If the definition is not valid.
+	 */
+	static Definition parse(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(in, StandardCharsets.UTF_8));
+
+		int columns = 0;
+		int rows = 0;
+		List<Symbol> symbols = new ArrayList<Symbol>();
+		Map<String, Symbol> names = new HashMap<String, Symbol>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		List<Integer> amounts = new ArrayList<Integer>();
+		double chances[] = new double[Dragon.values().length];
+		int strengths[][][] = new int[Dragon.values().length][][];
+		List<Symbol[]> lines = new ArrayList<Symbol[]>();
+
+		for (int d = 0; d < strengths.length; d++) {
+			strengths[d] = new int[][] { {}, {} };
+		}
+
+		String section = "";
+		int number = 0;
+		for (String text = reader.readLine(); text != null; text = reader
+				.readLine()) {
+			number++;
+
+			/* Comments and empty lines are skipped. */
+			text = text.trim();
+			if (text.isEmpty() == true || text.startsWith("#") == true) {
+				continue;
+			}
+
+			if (text.startsWith("[") == true && text.endsWith("]") == true) {
+				section = text.substring(1, text.length() - 1).trim();
+				continue;
+			}
+
+			String fields[] = text.split("\t");
+			try {
+				if (section.equals("screen") == true) {
+					columns = Integer.parseInt(fields[0].trim());
+					rows = Integer.parseInt(fields[1].trim());
+				} else if (section.equals("symbols") == true) {
+					Symbol symbol = new Symbol();
+					symbol.id(Integer.parseInt(fields[0].trim()));
+					symbol.name(fields[1].trim());
+					symbol.kind(Symbol.Kind.valueOf(fields[2].trim()));
+
+					String pays[][] = pairs(fields, 3);
+					for (int i = 0; i < pays[0].length; i++) {
+						symbol.pays().put(Integer.parseInt(pays[0][i]),
+								Double.parseDouble(pays[1][i]));
+					}
+
+					if (names.put(symbol.name(), symbol) != null) {
+						throw new IllegalArgumentException("Symbol "
+								+ symbol.name() + " is defined twice.");
+					}
+					symbols.add(symbol);
+				} else if (section.equals("wilds") == true) {
+					sizes.add(Integer.parseInt(fields[0].trim()));
+					amounts.add(Integer.parseInt(fields[1].trim()));
+				} else if (section.equals("dragons") == true) {
+					Dragon dragon = Dragon.valueOf(fields[0].trim());
+					chances[dragon.ordinal()] = Double
+							.parseDouble(fields[1].trim());
+
+					String pairs[][] = pairs(fields, 2);
+					strengths[dragon.ordinal()] = new int[][] {
+							integers(pairs[0]), integers(pairs[1]) };
+				} else if (section.equals("reels") == true) {
+					/* Symbols are found by name in a hash table. */
+					Symbol line[] = new Symbol[fields.length];
+					for (int i = 0; i < fields.length; i++) {
+						line[i] = names.get(fields[i].trim());
+						if (line[i] == null) {
+							throw new IllegalArgumentException("Symbol "
+									+ fields[i].trim() + " is not defined.");
+						}
+					}
+					lines.add(line);
+				} else {
+					throw new IllegalArgumentException(
+							"Unknown section " + section + ".");
+				}
+			} catch (ArrayIndexOutOfBoundsException exception) {
+				throw new IllegalArgumentException(
+						"Line " + number + ": values are missing.", exception);
+			} catch (IllegalArgumentException exception) {
+				/* Number format errors are also reported with the line. */
+				throw new IllegalArgumentException(
+						"Line " + number + ": " + exception.getMessage(),
+						exception);
+			}
+		}
+
+		/* Symbols are listed by their codes. */
+		Symbol codes[] = new Symbol[symbols.size()];
+		for (Symbol symbol : symbols) {
+			if (symbol.id() < 0 || symbol.id() >= codes.length
+					|| codes[symbol.id()] != null) {
+				throw new IllegalArgumentException("Symbol " + symbol.name()
+						+ " has invalid code " + symbol.id() + ".");
+			}
+			codes[symbol.id()] = symbol;
+		}
+
+		/* Each column of the reels section is a reel. */
+		Symbol reels[][] = new Symbol[lines.isEmpty() == true ? 0
+				: lines.get(0).length][lines.size()];
+		for (int j = 0; j < lines.size(); j++) {
+			if (lines.get(j).length != reels.length) {
+				throw new IllegalArgumentException("Reels line " + (j + 1)
+						+ " has " + lines.get(j).length + " symbols instead of "
+						+ reels.length + ".");
+			}
+
+			for (int i = 0; i < reels.length; i++) {
+				reels[i][j] = lines.get(j)[i];
+			}
+		}
+
+		int wilds[][] = new int[2][sizes.size()];
+		for (int i = 0; i < sizes.size(); i++) {
+			wilds[0][i] = sizes.get(i);
+			wilds[1][i] = amounts.get(i);
+		}
+
+		return new Definition(codes, reels, columns, rows, wilds, chances,
+				strengths);
+	}
+
+	/**
+	 * Read the binary form of a definition.
+	 * 
+	 * @param in
+	 *            Stream with the binary form.
+	 * 
+	 * @return The game definition.
+	 * 
+	 * @throws IOException
+	 *             If the stream can not be read.
+	 * @throws IllegalArgumentException
+	 *             If the definition is not valid.
+	 */
+	static Definition read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+
+		if (data.readInt() != MAGIC || data.readInt() != VERSION) {
+			throw new IllegalArgumentException(
+					"Unknown binary form of game definition.");
+		}
+
+		int columns = data.readInt();
+		int rows = data.readInt();
+
+		Symbol.Kind kinds[] = Symbol.Kind.values();
+		Symbol codes[] = new Symbol[count(data, Byte.MAX_VALUE, "symbols")];
+		for (int k = 0; k < codes.length; k++) {
+			codes[k] = new Symbol();
+			codes[k].id(k);
+			codes[k].name(data.readUTF());
+
+			byte kind = data.readByte();
+			if (kind < 0 || kind >= kinds.length) {
+				throw new IllegalArgumentException("Symbol " + codes[k].name()
+						+ " has unknown kind " + kind + ".");
+			}
+			codes[k].kind(kinds[kind]);
+
+			for (int i = count(data, LIMIT, "pays"); i > 0; i--) {
+				codes[k].pays().put(data.readInt(), data.readDouble());
+			}
+		}
+
+		int wilds[][] = new int[2][count(data, LIMIT, "wilds")];
+		for (int i = 0; i < wilds[0].length; i++) {
+			wilds[0][i] = data.readInt();
+			wilds[1][i] = data.readInt();
+		}
+
+		double chances[] = new double[Dragon.values().length];
+		int strengths[][][] = new int[Dragon.values().length][][];
+		if (data.readInt() != chances.length) {
+			throw new IllegalArgumentException(
+					"Number of dragons is different.");
+		}
+		for (int d = 0; d < chances.length; d++) {
+			chances[d] = data.readDouble();
+			strengths[d] = new int[2][count(data, LIMIT, "strengths")];
+			for (int i = 0; i < strengths[d][0].length; i++) {
+				strengths[d][0][i] = data.readInt();
+				strengths[d][1][i] = data.readInt();
+			}
+		}
+
+		/* Reels are stored as symbols codes. */
+		Symbol reels[][] = new Symbol[count(data, LIMIT, "reels")][];
+		for (int i = 0; i < reels.length; i++) {
+			byte strip[] = new byte[count(data, LIMIT, "symbols on reel " + i)];
+			data.readFully(strip);
+
+			reels[i] = new Symbol[strip.length];
+			for (int j = 0; j < strip.length; j++) {
+				if (strip[j] < 0 || strip[j] >= codes.length) {
+					throw new IllegalArgumentException("Reel " + i
+							+ " has unknown symbol code " + strip[j] + ".");
+				}
+				reels[i][j] = codes[strip[j]];
+			}
+		}
+
+		return new Definition(codes, reels, columns, rows, wilds, chances,
+				strengths);
+	}
+
+	/**
+	 * Write the binary form of a definition.
+	 * 
+	 * @param definition
+	 *            The game definition.
+	 * @param out
+	 *            Stream for the binary form.
+	 * 
+	 * @throws IOException
+	 *             If the stream can not be written.
+	 */
+	static void write(Definition definition, OutputStream out)
+			throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(definition.columns());
+		data.writeInt(definition.rows());
+
+		data.writeInt(definition.codes().length);
+		for (Symbol symbol : definition.codes()) {
+			data.writeUTF(symbol.name());
+			data.writeByte(symbol.kind().ordinal());
+			data.writeInt(symbol.pays().size());
+			for (Map.Entry<Integer, Double> entry : symbol.pays().entrySet()) {
+				data.writeInt(entry.getKey());
+				data.writeDouble(entry.getValue());
+			}
+		}
+
+		int wilds[][] = definition.wilds();
+		data.writeInt(wilds[0].length);
+		for (int i = 0; i < wilds[0].length; i++) {
+			data.writeInt(wilds[0][i]);
+			data.writeInt(wilds[1][i]);
+		}
+
+		data.writeInt(definition.chances().length);
+		for (int d = 0; d < definition.chances().length; d++) {
+			int strengths[][] = definition.strengths()[d];
+
+			data.writeDouble(definition.chances()[d]);
+			data.writeInt(strengths[0].length);
+			for (int i = 0; i < strengths[0].length; i++) {
+				data.writeInt(strengths[0][i]);
+				data.writeInt(strengths[1][i]);
+			}
+		}
+
+		Symbol reels[][] = definition.reels();
+		data.writeInt(reels.length);
+		for (Symbol reel[] : reels) {
+			data.writeInt(reel.length);
+			for (Symbol symbol : reel) {
+				data.writeByte(symbol.id());
+			}
+		}
+
+		data.flush();
+	}
+
+	/**
+	 * Convert a game definition to its binary form.
+	 * 
+	 * @param args
+	 *            Path of the definition and path of the binary form.
+	 * 
+	 * @throws IOException
+	 *             If a file can not be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: Loader <definition> <binary>");
+			return;
+		}
+
+		Definition.load(Paths.get(args[0])).save(Paths.get(args[1]));
+	}
+}
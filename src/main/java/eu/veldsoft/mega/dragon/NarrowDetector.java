@@ -0,0 +1,288 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.Arrays;
+
+/**
+ * Clusters detection engine for screens up to 64 cells, as bits of a single
+ * long value. The screen of the previous detection is remembered and only the
+ * connected components which touch changed cells are grown again. The
+ * clusters of the other components are reused as they are. Symbols which do
+ * not have enough cells, wilds included, are not even grown.
+ *
+ * @author Todor Balabanov
+ */
+final class NarrowDetector implements Detector {
+	/** Bit operations over the screen cells. */
+	private final Bitboard board;
+
+	/** Symbols references by their codes. */
+	private final Symbol codes[];
+
+	/** Compiled game rules. */
+	private final Rules rules;
+
+	/** Codes of the regular symbols. */
+	private final byte regulars[];
+
+	/** Codes of the wild symbols. */
+	private final byte wildcards[];
+
+	/** Occupancy mask for each symbol code. */
+	private final long masks[];
+
+	/** Components of each symbol code which are not changed. */
+	private final long kept[];
+
+	/** Screen as it was during the previous detection. */
+	private final byte previous[];
+
+	/**
+	 * Connected components of regular symbols and wilds by symbol code. Single
+	 * cells are not kept.
+	 */
+	private final long components[][];
+
+	/** Number of connected components by symbol code. */
+	private final int counts[];
+
+	/** Connected components of wilds only. Single cells are not kept. */
+	private final long wildComponents[];
+
+	/** Number of connected components of wilds only. */
+	private int wildCount = 0;
+
+	/** Cells of the clusters by the cell where they start. */
+	private final long starts[];
+
+	/** Symbols codes of the clusters by the cell where they start. */
+	private final byte symbols[];
+
+	/** Cells where clusters start. */
+	private long started = 0;
+
+	/** Clusters found during the previous detection. */
+	private final Clusters clusters;
+
+	/**
+	 * Constructor with all parameters.
+	 *
+	 * @param board
+	 *            Bit operations over the screen cells.
+	 * @param codes
+	 *            Symbols references by their codes.
+	 * @param rules
+	 *            Compiled game rules.
+	 */
+	public NarrowDetector(Bitboard board, Symbol[] codes, Rules rules) {
+		super();
+
+		int cells = board.columns() * board.rows();
+
+		this.board = board;
+		this.codes = codes;
+		this.rules = rules;
+
+		/* Symbols codes are grouped by kind. */
+		int regular = 0;
+		int wild = 0;
+		for (Symbol symbol : codes) {
+			if (symbol.kind() == Symbol.Kind.WILD) {
+				wild++;
+			} else if (symbol.kind() != Symbol.Kind.NONE) {
+				regular++;
+			}
+		}
+		regulars = new byte[regular];
+		wildcards = new byte[wild];
+		for (byte k = 0; k < codes.length; k++) {
+			if (codes[k].kind() == Symbol.Kind.WILD) {
+				wildcards[--wild] = k;
+			} else if (codes[k].kind() != Symbol.Kind.NONE) {
+				regulars[--regular] = k;
+			}
+		}
+
+		masks = new long[codes.length];
+		kept = new long[codes.length];
+		previous = new byte[cells];
+		components = new long[codes.length][cells];
+		counts = new int[codes.length];
+		wildComponents = new long[cells];
+		starts = new long[cells];
+		symbols = new byte[cells];
+		clusters = new Clusters(cells, 1);
+
+		/* Nothing is known before the first detection. */
+		Arrays.fill(previous, (byte) -1);
+	}
+
+	/**
+	 * Create a cluster, which starts from a particular cell.
+	 *
+	 * @param code
+	 *            Code of the cluster symbol.
+	 * @param start
+	 *            Cell where the cluster starts.
+	 * @param cells
+	 *            Cells of the cluster.
+	 */
+	private void found(byte code, int start, long cells) {
+		started |= 1L << start;
+		starts[start] = cells;
+		symbols[start] = code;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clusters mark(byte[] view) {
+		/* Symbols occupancy and changed cells since the previous detection. */
+		long dirty = 0;
+		Arrays.fill(masks, 0);
+		for (int c = 0; c < view.length; c++) {
+			int difference = view[c] ^ previous[c];
+
+			masks[view[c]] |= 1L << c;
+			dirty |= (long) ((difference | -difference) >>> 31) << c;
+			previous[c] = view[c];
+		}
+
+		/* All wilds in a single mask. */
+		long wilds = 0;
+		for (byte k : wildcards) {
+			wilds |= masks[k];
+		}
+
+		/* Components which do not touch this area are not changed. */
+		dirty |= board.neighbors(dirty);
+
+		/* When everything is changed nothing is kept. */
+		if (dirty == board.all()) {
+			wildCount = 0;
+			Arrays.fill(counts, 0);
+			clusters.clear();
+		}
+
+		/* Components of wilds are kept when nothing around them is changed. */
+		long keptWilds = 0;
+		int n = 0;
+		for (int i = 0; i < wildCount; i++) {
+			long component = wildComponents[i];
+			if ((component & dirty) == 0) {
+				keptWilds |= component;
+				wildComponents[n++] = component;
+			}
+		}
+
+		/* Changed components of wilds are grown again. */
+		for (long rest = wilds & ~keptWilds, component = 0; rest != 0;
+				rest &= ~component) {
+			long start = rest & -rest;
+
+			/* Single wilds are not clusters. */
+			if ((board.neighbors(start) & wilds) == 0) {
+				component = start;
+				continue;
+			}
+
+			component = board.grow(start, wilds);
+			wildComponents[n++] = component;
+			int cell = Long.numberOfTrailingZeros(start);
+			found(view[cell], cell, component);
+		}
+		wildCount = n;
+
+		for (byte k : regulars) {
+			/* Components are kept when nothing around them is changed. */
+			kept[k] = 0;
+			n = 0;
+
+			/* Symbols which can not reach the paying size are not grown. */
+			if (Long.bitCount(masks[k] | wilds) < rules.minimum(k)) {
+				counts[k] = 0;
+				continue;
+			}
+
+			for (int i = 0; i < counts[k]; i++) {
+				long component = components[k][i];
+				if ((component & dirty) == 0) {
+					kept[k] |= component;
+					components[k][n++] = component;
+				}
+			}
+
+			/* Changed components are grown again. */
+			long area = masks[k] | wilds;
+			for (long rest = masks[k] & ~kept[k], component = 0; rest != 0;
+					rest &= ~component) {
+				long start = rest & -rest;
+
+				/* Single symbols are not clusters. */
+				if ((board.neighbors(start) & area) == 0) {
+					component = start;
+					continue;
+				}
+
+				component = board.grow(start, area);
+				components[k][n++] = component;
+				if (Long.bitCount(component) >= rules.minimum(k)) {
+					found(k, Long.numberOfTrailingZeros(start), component);
+				}
+
+				/*
+				 * Without enough wilds the component has a single paying
+				 * cluster.
+				 */
+				if (Long.bitCount(component & wilds) + 1 < rules.minimum(k)) {
+					continue;
+				}
+
+				/* The other symbols of the component touching wilds. */
+				for (long others = component & masks[k] & ~start; others != 0;
+						others &= others - 1) {
+					long cell = others & -others;
+					if ((board.neighbors(cell) & wilds) == 0) {
+						continue;
+					}
+
+					long cluster = board.grow(cell, wilds | cell);
+					if (Long.bitCount(cluster) >= rules.minimum(k)) {
+						found(k, Long.numberOfTrailingZeros(cell), cluster);
+					}
+				}
+			}
+			counts[k] = n;
+		}
+
+		/* The clusters of the kept components are reused. */
+		for (int i = 0; i < clusters.size(); i++) {
+			byte code = clusters.symbol(i);
+			long start = clusters.cells(i);
+
+			/* Regular symbols clusters start from their first non-wild cell. */
+			if (codes[code].kind() == Symbol.Kind.WILD) {
+				if ((start & ~keptWilds) != 0) {
+					continue;
+				}
+			} else {
+				if ((start & ~kept[code]) != 0) {
+					continue;
+				}
+				start &= ~wilds;
+			}
+
+			start &= -start;
+			found(code, Long.numberOfTrailingZeros(start), clusters.cells(i));
+		}
+
+		/* Clusters are listed in the order of their start cells. */
+		clusters.clear();
+		for (; started != 0; started &= started - 1) {
+			int c = Long.numberOfTrailingZeros(started);
+			clusters.add(symbols[c], starts[c]);
+		}
+
+		return clusters;
+	}
+}
@@ -0,0 +1,157 @@
+package eu.veldsoft.mega.dragon;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Virtual game reels with precomputed windows. For each reel and each stop the
+ * visible column of symbols codes is prepared in advance, so the spin and the
+ * refill of a column are copies from a table instead of modulo index
+ * calculations for each cell. When the column is 8 cells high a whole window
+ * is a single long value.
+ * 
+ * @author Todor Balabanov
+ */
+final class Reels {
+	/** Access to 8 symbols codes at once as a single long value. */
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/** The lowest bit of each byte in a long value. */
+	private static final long LOWS = 0x0101010101010101L;
+
+	/** The highest bit of each byte in a long value. */
+	private static final long HIGHS = 0x8080808080808080L;
+
+	/** Reels strips with symbols references. */
+	private final Symbol symbols[][];
+
+	/** Number of rows on the screen. */
+	private final int rows;
+
+	/** Reels lengths. */
+	private final int lengths[];
+
+	/**
+	 * Windows of each reel. The window for particular stop starts at stop
+	 * multiplied by the number of rows.
+	 */
+	private final byte windows[][];
+
+	/**
+	 * Constructor with all parameters.
+	 * 
+	 * @param symbols Reels strips with symbols references.
+	 * @param rows    Number of rows on the screen.
+	 */
+	public Reels(Symbol[][] symbols, int rows) {
+		super();
+
+		this.symbols = symbols;
+		this.rows = rows;
+
+		lengths = new int[symbols.length];
+		windows = new byte[symbols.length][];
+
+		update();
+	}
+
+	/**
+	 * Build the windows tables again. It should be called each time when the
+	 * reels strips are changed.
+	 */
+	public void update() {
+		for (int i = 0; i < symbols.length; i++) {
+			lengths[i] = symbols[i].length;
+			windows[i] = new byte[lengths[i] * rows];
+
+			for (int r = 0; r < lengths[i]; r++) {
+				for (int j = 0; j < rows; j++) {
+					windows[i][r * rows + j] = (byte) symbols[i][(r + j) % lengths[i]].id();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reels strips with symbols references getter.
+	 * 
+	 * @return The reels strips.
+	 */
+	public Symbol[][] symbols() {
+		return symbols;
+	}
+
+	/**
+	 * Single reels spin to fill the view with symbols.
+	 *
+	 * @param view  Screen with symbols codes, column after column.
+	 * @param stops Indices of the reels stops.
+	 * @param prng  Pseudo-random numbers generator.
+	 */
+	public void spin(byte[] view, int stops[], Generator prng) {
+		for (int i = 0; i < windows.length; i++) {
+			/* Select random stop position. */
+			int r = stops[i] = prng.nextInt(lengths[i]);
+
+			/* Fill the column from the table. */
+			if (rows == Long.BYTES) {
+				LONGS.set(view, i * rows, (long) LONGS.get(windows[i], r * rows));
+			} else {
+				System.arraycopy(windows[i], r * rows, view, i * rows, rows);
+			}
+		}
+	}
+
+	/**
+	 * Drop the symbols down over the empty cells and fill the gaps at the top
+	 * of the columns from the reels in a single pass for each column. The
+	 * remaining symbols keep their order. The reel is moved backwards one
+	 * position for each empty cell, so the missing cells are filled with the
+	 * end of a single window of the reel.
+	 *
+	 * @param view  Screen with symbols codes, column after column.
+	 * @param stops Indices of the reels stops.
+	 * @param empty Code of the empty cells.
+	 */
+	public void cascade(byte[] view, int stops[], byte empty) {
+		/* Each byte of the pattern is an empty cell. */
+		long pattern = (empty & 0xFFL) * LOWS;
+
+		for (int i = 0; i < windows.length; i++) {
+			int base = i * rows;
+
+			/* Columns without empty cells are skipped as a whole. */
+			if (rows == Long.BYTES) {
+				long bytes = (long) LONGS.get(view, base) ^ pattern;
+				if (((bytes - LOWS) & ~bytes & HIGHS) == 0) {
+					continue;
+				}
+			}
+
+			/* The symbols are moved down in a single pass from the bottom. */
+			int top = base + rows;
+			for (int c = base + rows - 1; c >= base; c--) {
+				if (view[c] != empty) {
+					view[--top] = view[c];
+				}
+			}
+
+			/* If the column is full do nothing. */
+			int count = top - base;
+			if (count == 0) {
+				continue;
+			}
+
+			/* The window ends at the current stop. */
+			int r = stops[i] - count + 1;
+			if (r < 0) {
+				r += lengths[i];
+			}
+			stops[i] = r == 0 ? lengths[i] - 1 : r - 1;
+
+			/* Refill the screen. */
+			System.arraycopy(windows[i], r * rows, view, base, count);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Results of a simulation run, or of its part during the progress reports.
+ *
+ * @author Todor Balabanov
+ */
+public final class Result {
+	/** Seed of the pseudo-random numbers of the simulation. */
+	private final long seed;
+
+	/** Number of played games. */
+	private final long numberOfRuns;
+
+	/** Total bet in each game run. */
+	private final double bet;
+
+	/** Sum of the wins in fixed-point units of the bet. */
+	private final long sum;
+
+	/** Standard deviation of the win to bet ratio of a single game. */
+	private final double deviation;
+
+	/** Half of the width of the confidence interval of the RTP. */
+	private final double halfWidth;
+
+	/** Number of games with a win. */
+	private final long hits;
+
+	/** Biggest win of a single game in fixed-point units of the bet. */
+	private final long maxWin;
+
+	/** Distribution of the win to bet ratio of a single game. */
+	private final Histogram multipliers;
+
+	/** Number of games by the number of the cascades with wins. */
+	private final long depths[];
+
+	/**
+	 * Constructor with all parameters.
+	 *
+	 * @param seed
+	 *            Seed of the pseudo-random numbers of the simulation.
+	 * @param bet
+	 *            Total bet in each game run.
+	 * @param statistics
+	 *            Accumulated results of the game runs.
+	 * @param confidence
+	 *            Confidence level of the interval, such as 0.95.
+	 */
+	Result(long seed, double bet, Statistics statistics, double confidence) {
+		super();
+
+		this.seed = seed;
+		this.bet = bet;
+		this.numberOfRuns = statistics.numberOfRuns();
+		this.sum = statistics.sum();
+		this.deviation = Math.sqrt(statistics.variance());
+		this.hits = statistics.hits();
+		this.maxWin = statistics.max();
+		this.multipliers = new Histogram();
+		this.multipliers.merge(statistics.multipliers());
+		this.depths = statistics.depths().clone();
+
+		/* The mean of many games is normally distributed. */
+		if (numberOfRuns < 2) {
+			this.halfWidth = Double.POSITIVE_INFINITY;
+		} else {
+			this.halfWidth = quantile(0.5 + confidence / 2) * deviation
+					/ Math.sqrt(numberOfRuns);
+		}
+	}
+
+	/**
+	 * Quantile of the standard normal distribution, by the rational
+	 * approximation of Acklam with relative error less than 1.15e-9.
+	 * 
+	 * @param p
+	 *            Probability between zero and one.
+	 * 
+	 * @return The value with the given cumulative probability.
+	 */
+	static double quantile(double p) {
+		final double a[] = { -3.969683028665376e+01, 2.209460984245205e+02,
+				-2.759285104469687e+02, 1.383577518672690e+02,
+				-3.066479806614716e+01, 2.506628277459239e+00 };
+		final double b[] = { -5.447609879822406e+01, 1.615858368580409e+02,
+				-1.556989798598866e+02, 6.680131188771972e+01,
+				-1.328068155288572e+01 };
+		final double c[] = { -7.784894002430293e-03, -3.223964580411365e-01,
+				-2.400758277161838e+00, -2.549732539343734e+00,
+				4.374664141464968e+00, 2.938163982698783e+00 };
+		final double d[] = { 7.784695709041462e-03, 3.224671290700398e-01,
+				2.445134137142996e+00, 3.754408661907416e+00 };
+		final double low = 0.02425;
+
+		/* The tails and the central region have separate approximations. */
+		if (p < low) {
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4])
+					* q + c[5])
+					/ ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		}
+		if (p > 1 - low) {
+			return -quantile(1 - p);
+		}
+
+		double q = p - 0.5;
+		double r = q * q;
+		return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r
+				+ a[5]) * q
+				/ (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r
+						+ 1);
+	}
+
+	/**
+	 * Seed getter.
+	 *
+	 * @return The seed of the pseudo-random numbers.
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * Number of played games getter.
+	 *
+	 * @return The number of games.
+	 */
+	public long numberOfRuns() {
+		return numberOfRuns;
+	}
+
+	/**
+	 * Total amount of bets getter.
+	 *
+	 * @return The lost money.
+	 */
+	public double lostMoney() {
+		return numberOfRuns * bet;
+	}
+
+	/**
+	 * Total amount of wins getter.
+	 *
+	 * @return The won money.
+	 */
+	public double wonMoney() {
+		return (double) sum / Rules.SCALE * bet;
+	}
+
+	/**
+	 * Return to player getter.
+	 *
+	 * @return The won money divided by the lost money. It is found from the
+	 *         exact integer totals, so it is the same for any number of
+	 *         threads.
+	 */
+	public double rtp() {
+		return (double) sum / Rules.SCALE / numberOfRuns;
+	}
+
+	/**
+	 * Standard deviation getter.
+	 * 
+	 * @return The standard deviation of the win to bet ratio of a single
+	 *         game, the volatility of the game.
+	 */
+	public double deviation() {
+		return deviation;
+	}
+
+	/**
+	 * Confidence interval getter.
+	 * 
+	 * @return Half of the width of the confidence interval of the RTP.
+	 */
+	public double halfWidth() {
+		return halfWidth;
+	}
+
+	/**
+	 * Hit frequency getter.
+	 *
+	 * @return The part of the games with a win.
+	 */
+	public double hitFrequency() {
+		return (double) hits / numberOfRuns;
+	}
+
+	/**
+	 * Biggest win getter.
+	 *
+	 * @return The biggest win to bet ratio of a single game.
+	 */
+	public double maxWin() {
+		return (double) maxWin / Rules.SCALE;
+	}
+
+	/**
+	 * Win multipliers distribution getter.
+	 *
+	 * @return The histogram of the win to bet ratio of a single game.
+	 */
+	public Histogram multipliers() {
+		return multipliers;
+	}
+
+	/**
+	 * Cascade depths distribution getter.
+	 *
+	 * @return The number of games by the number of the cascades with wins.
+	 *         The last counter includes all deeper games.
+	 */
+	public long[] depths() {
+		return depths.clone();
+	}
+}
@@ -0,0 +1,169 @@
+package eu.veldsoft.mega.dragon;
+
+import java.math.BigDecimal;
+
+/**
+ * Game rules compiled to flat primitive tables. The pay tables, the number of
+ * wilds for the winning clusters and the dragons strengths of a game
+ * definition are calculated once for every possible cluster size, so the
+ * lookup during the game play is a single array load. The pays are in
+ * integer fixed-point units of the bet, so the wins are added without rounding
+ * errors.
+ * 
+ * @author Todor Balabanov
+ */
+final class Rules {
+	/**
+	 * Fixed-point units in a single bet. The pays are decimal multiples of the
+	 * bet with at most four digits after the point, so they are exact in these
+	 * units.
+	 */
+	static final long SCALE = 10_000;
+
+	/** Biggest possible cluster size. */
+	private final int cells;
+
+	/** Wins in fixed-point units of the bet by symbol code and cluster size. */
+	private final long pays[];
+
+	/** Smallest paying cluster size by symbol code. */
+	private final int minimums[];
+
+	/** Number of wilds to place by cluster size. */
+	private final int wilds[];
+
+	/** Dragon strength by dragon and number of wilds triggered it. */
+	private final int strengths[];
+
+	/**
+	 * Alias table probabilities of the dragons, to keep the dragon of each
+	 * column.
+	 */
+	private final double cutoffs[];
+
+	/** Alias table dragons used when the dragon of the column is not kept. */
+	private final Dragon aliases[];
+
+	/**
+	 * Constructor with all parameters.
+	 * 
+	 * @param definition Game definition. The number of cells on the screen is
+	 *                   the biggest possible cluster size.
+	 */
+	public Rules(Definition definition) {
+		super();
+
+		Symbol codes[] = definition.codes();
+		int cells = definition.columns() * definition.rows();
+		Dragon dragons[] = Dragon.values();
+
+		this.cells = cells;
+
+		cutoffs = new double[dragons.length];
+		aliases = new Dragon[dragons.length];
+		Dragon.alias(definition.chances(), cutoffs, aliases);
+
+		pays = new long[codes.length * (cells + 1)];
+		minimums = new int[codes.length];
+		for (int k = 0; k < codes.length; k++) {
+			minimums[k] = cells + 1;
+			for (int size = cells; size >= 0; size--) {
+				pays[k * (cells + 1) + size] = units(
+						codes[k].multiplier(size));
+
+				/* Pay tables do not pay less for bigger clusters. */
+				if (pays[k * (cells + 1) + size] > 0) {
+					minimums[k] = size;
+				}
+			}
+		}
+
+		wilds = new int[cells + 1];
+		for (int size = 0; size <= cells; size++) {
+			wilds[size] = definition.wilds(size);
+		}
+
+		strengths = new int[dragons.length * (cells + 1)];
+		for (Dragon dragon : dragons) {
+			for (int size = 0; size <= cells; size++) {
+				strengths[dragon.ordinal() * (cells + 1)
+						+ size] = definition.strength(dragon, size);
+			}
+		}
+	}
+
+	/**
+	 * Convert a win multiplier to fixed-point units of the bet.
+	 * 
+	 * @param multiplier The win multiplier.
+	 * 
+	 * @return The win in fixed-point units.
+	 * 
+	 * @throws ArithmeticException If the multiplier is not an exact multiple
+	 *                             of the fixed-point unit or it is too big.
+	 */
+	static long units(double multiplier) {
+		/* The shortest decimal form of the value is converted. */
+		return BigDecimal.valueOf(multiplier)
+				.multiply(BigDecimal.valueOf(SCALE)).longValueExact();
+	}
+
+	/**
+	 * Win of a cluster.
+	 * 
+	 * @param symbol Symbol code of the cluster.
+	 * @param count  Size of the cluster.
+	 * 
+	 * @return The win in fixed-point units of the bet.
+	 */
+	public long pay(byte symbol, int count) {
+		return pays[symbol * (cells + 1) + count];
+	}
+
+	/**
+	 * Smallest paying cluster size of a symbol.
+	 * 
+	 * @param symbol Symbol code.
+	 * 
+	 * @return The smallest cluster size with positive pay or bigger than
+	 *         the screen size if the symbol does not pay at all.
+	 */
+	public int minimum(byte symbol) {
+		return minimums[symbol];
+	}
+
+	/**
+	 * Number of wilds to place in the place of a winning cluster.
+	 * 
+	 * @param count Size of the cluster.
+	 * 
+	 * @return The number of wilds.
+	 */
+	public int wilds(int count) {
+		return wilds[count];
+	}
+
+	/**
+	 * Dragon strength according to how many wilds triggered it.
+	 * 
+	 * @param dragon The dragon.
+	 * @param count  The number of wilds which triggered the dragon.
+	 * 
+	 * @return The dragon strength.
+	 */
+	public int strength(Dragon dragon, int count) {
+		return strengths[dragon.ordinal() * (cells + 1) + count];
+	}
+
+	/**
+	 * Pick one of the dragons according to their chances in the game
+	 * definition.
+	 * 
+	 * @param prng Pseudo-random numbers generator.
+	 * 
+	 * @return A dragon selected with the alias table.
+	 */
+	public Dragon scramble(Generator prng) {
+		return Dragon.scramble(prng, cutoffs, aliases);
+	}
+}
@@ -0,0 +1,186 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.Arrays;
+
+/**
+ * Reel strips shuffling engine. The equal symbols of a strip are split in
+ * groups, which are not longer than a given size for the high and the low
+ * paying symbols. The groups are placed in random order, so two groups of the
+ * same symbol are never next to each other, the last and the first group of
+ * the strip included.
+ *
+ * The order is built group after group. Each time a random group is taken
+ * among the groups which keep a valid order possible for the rest of the
+ * groups, so there is no need for retries and the time is linear to the length
+ * of the strip. The shuffling is done over symbols codes and the object keeps
+ * its working arrays, so it should be used by a single thread.
+ *
+ * @author Todor Balabanov
+ */
+final class Shuffler {
+	/** Kinds of the symbols by their codes. */
+	private final Symbol.Kind kinds[];
+
+	/** Number of groups left for each symbol code. */
+	private final int available[];
+
+	/** Index of the first group of each symbol code. */
+	private final int offsets[];
+
+	/** Sizes of the groups, grouped by symbol code. */
+	private final int sizes[];
+
+	/** Symbols codes of the groups in the shuffled order. */
+	private final byte order[];
+
+	/** Sizes of the groups in the shuffled order. */
+	private final int lengths[];
+
+	/**
+	 * Constructor with all parameters.
+	 *
+	 * @param kinds  Kinds of the symbols by their codes.
+	 * @param length The longest strip to be shuffled.
+	 */
+	public Shuffler(Symbol.Kind[] kinds, int length) {
+		super();
+
+		this.kinds = kinds;
+
+		available = new int[kinds.length];
+		offsets = new int[kinds.length];
+		sizes = new int[length];
+		order = new byte[length];
+		lengths = new int[length];
+	}
+
+	/**
+	 * Check that the rest of the groups can be ordered after a group of a
+	 * particular symbol is taken.
+	 *
+	 * @param code  Code of the symbol of the taken group.
+	 * @param rest  Number of groups left after the taken one.
+	 * @param first Code of the symbol of the first group in the strip.
+	 *
+	 * @return True if valid order of the rest is possible, false otherwise.
+	 */
+	private boolean possible(int code, int rest, int first) {
+		/* The last group is next to the first one. */
+		if (rest == 0) {
+			return code != first;
+		}
+
+		/*
+		 * A symbol can not have more groups than the half of the places it is
+		 * allowed on, because the group after the taken one and the group
+		 * before the first one have restrictions.
+		 */
+		for (int k = 0; k < available.length; k++) {
+			int count = k == code ? available[k] - 1 : available[k];
+			int places = rest + 1 - (k == code ? 1 : 0) - (k == first ? 1 : 0);
+
+			if (2 * count > places) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Shuffle single strip in groups according to given size for high and low
+	 * symbols.
+	 *
+	 * @param strip Symbols codes of the reel strip.
+	 * @param high  Size of the high symbols group.
+	 * @param low   Size of the low symbols group.
+	 * @param prng  Pseudo-random numbers generator.
+	 *
+	 * @throws IllegalArgumentException If a symbol has too many groups, so
+	 *                                  they can not be separated.
+	 */
+	public void shuffle(byte[] strip, int high, int low, Generator prng) {
+		/* Count the symbols by their codes. */
+		Arrays.fill(available, 0);
+		for (byte code : strip) {
+			available[code]++;
+		}
+
+		/* Split the equal symbols in groups. */
+		int total = 0;
+		for (int k = 0; k < kinds.length; k++) {
+			int limit = Integer.MAX_VALUE;
+			if (kinds[k] == Symbol.Kind.HIGH) {
+				limit = Math.max(1, high);
+			} else if (kinds[k] == Symbol.Kind.LOW) {
+				limit = Math.max(1, low);
+			}
+
+			offsets[k] = total;
+			for (int rest = available[k]; rest > 0; rest -= sizes[total - 1]) {
+				sizes[total++] = Math.min(limit, rest);
+			}
+			available[k] = total - offsets[k];
+		}
+
+		/* A single group has no order. */
+		if (total < 2) {
+			return;
+		}
+
+		/* Groups are taken one by one. */
+		int previous = -1;
+		int first = -1;
+		for (int g = 0; g < total; g++) {
+			int rest = total - g - 1;
+
+			/* The chances of a symbol are according to its groups. */
+			int weight = 0;
+			for (int k = 0; k < kinds.length; k++) {
+				if (available[k] > 0 && k != previous
+						&& possible(k, rest, g == 0 ? k : first)) {
+					weight += available[k];
+				}
+			}
+
+			if (weight == 0) {
+				throw new IllegalArgumentException(
+						"Groups of the same symbol can not be separated.");
+			}
+
+			/* Select the symbol of the group. */
+			int code = 0;
+			for (int index = prng.nextInt(weight);; code++) {
+				if (available[code] > 0 && code != previous
+						&& possible(code, rest, g == 0 ? code : first)) {
+					index -= available[code];
+					if (index < 0) {
+						break;
+					}
+				}
+			}
+
+			/* Take a random group of this symbol. */
+			int last = offsets[code] + available[code] - 1;
+			int index = offsets[code] + prng.nextInt(available[code]);
+			int size = sizes[index];
+			sizes[index] = sizes[last];
+			sizes[last] = size;
+			available[code]--;
+
+			order[g] = (byte) code;
+			lengths[g] = size;
+
+			previous = code;
+			if (g == 0) {
+				first = code;
+			}
+		}
+
+		/* Store the final result. */
+		for (int g = 0, i = 0; g < total; g++) {
+			Arrays.fill(strip, i, i + lengths[g], order[g]);
+			i += lengths[g];
+		}
+	}
+}
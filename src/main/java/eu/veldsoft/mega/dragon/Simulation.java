@@ -0,0 +1,85 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single simulation run of an engine. It keeps the parameters of the run and
+ * separate game states for each worker thread, so many simulations of the same
+ * engine can run at the same time.
+ *
+ * @author Todor Balabanov
+ */
+final class Simulation {
+	/** Number of game runs between two checks of the time budget. */
+	private static final int STRIDE = 1 << 10;
+
+	/** Engine of the game. */
+	private final Engine engine;
+
+	/** Seed of the pseudo-random numbers for the whole simulation. */
+	private final long seed;
+
+	/** Start of the simulation by the system timer. */
+	private final long start;
+
+	/** Wall-clock budget in nanoseconds. There is no budget when it is zero. */
+	private final long budget;
+
+	/** Separate game state for each simulation worker thread. */
+	private final ThreadLocal<Game> games;
+
+	/**
+	 * Constructor with all parameters. The time budget is counted from the
+	 * creation of the simulation.
+	 *
+	 * @param engine
+	 *            Engine of the game.
+	 * @param configuration
+	 *            Parameters of the simulation.
+	 */
+	public Simulation(Engine engine, Configuration configuration) {
+		super();
+
+		boolean wide = configuration.wide();
+
+		this.engine = engine;
+		seed = configuration.seed();
+		start = System.nanoTime();
+		budget = TimeUnit.SECONDS.toNanos(configuration.seconds());
+
+		games = ThreadLocal.withInitial(() -> engine.game(wide));
+	}
+
+	/**
+	 * Check the time budget of the simulation.
+	 *
+	 * @return True if the budget is spent, false otherwise.
+	 */
+	public boolean expired() {
+		return budget > 0 && System.nanoTime() - start >= budget;
+	}
+
+	/**
+	 * Play range of games in the current thread and accumulate the results.
+	 * The range is left unfinished when the time budget is spent.
+	 *
+	 * @param from
+	 *            Index of the first game run.
+	 * @param to
+	 *            Index of the game run after the last one.
+	 * @param statistics
+	 *            Statistics where the results are accumulated.
+	 */
+	public void play(long from, long to, Statistics statistics) {
+		Game game = games.get();
+
+		for (long round = from; round < to; round++) {
+			/* The timer is read rarely, because it is not free. */
+			if ((round - from) % STRIDE == 0 && expired() == true) {
+				break;
+			}
+
+			statistics.add(engine.play(game, seed, round), game.depth());
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Counter-based generator with the SplitMix64 mixing function. The output
+ * number is a pure function of the seed, the game run index and the position
+ * in the game run stream, so there is no shared state to be contended.
+ * 
+ * @author Todor Balabanov
+ */
+final class SplitMix implements Generator {
+	/** Odd constant used as counter increment (the golden ratio). */
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Key of the current game run stream. */
+	private long key = 0;
+
+	/** Position in the current game run stream. */
+	private long counter = 0;
+
+	/**
+	 * SplitMix64 finalization function.
+	 * 
+	 * @param value
+	 *            Value to be mixed.
+	 * 
+	 * @return Mixed value.
+	 */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void seed(long seed, long round) {
+		key = mix(seed + mix(round + GAMMA));
+		counter = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long nextLong() {
+		counter++;
+		return mix(key + counter * GAMMA);
+	}
+}
@@ -0,0 +1,213 @@
+package eu.veldsoft.mega.dragon;
+
+import java.math.BigInteger;
+
+/**
+ * Accumulated results of simulated game runs. Each worker collects its own
+ * instance and the instances are merged at the end of the work. The wins are
+ * accounted in integer fixed-point units of the bet, so the addition is exact
+ * and the totals do not depend on the order of the merges or on the number of
+ * threads. An overflow of the totals is reported as an error.
+ *
+ * @author Todor Balabanov
+ */
+final class Statistics {
+	/**
+	 * Number of counters of the cascade depths. Deeper rounds are in the last.
+	 */
+	static final int DEPTHS = 32;
+
+	/** Number of played games. */
+	private long numberOfRuns = 0;
+
+	/** Sum of the wins in fixed-point units of the bet. */
+	private long sum = 0;
+
+	/**
+	 * Sum of the squared wins in fixed-point units of the bet, as 128 bits
+	 * integer with high and low words. The variance is found from the exact
+	 * sums, so it is as stable as by Welford's algorithm.
+	 */
+	private long high = 0;
+
+	/** Low word of the sum of the squared wins. */
+	private long low = 0;
+
+	/** Number of games with a win. */
+	private long hits = 0;
+
+	/** Biggest win of a single game in fixed-point units of the bet. */
+	private long max = 0;
+
+	/** Distribution of the win to bet ratio of a single game. */
+	private final Histogram multipliers = new Histogram();
+
+	/** Number of games by the number of the cascades with wins. */
+	private final long depths[] = new long[DEPTHS];
+
+	/**
+	 * Register a single played game.
+	 *
+	 * @param win
+	 *            The total win of the game in fixed-point units of the bet.
+	 * @param depth
+	 *            The number of the cascades with wins in the game.
+	 */
+	public void add(long win, int depth) {
+		/* The sum is checked first, so an overflow changes nothing. */
+		sum = Math.addExact(sum, win);
+
+		numberOfRuns++;
+
+		depths[Math.min(depth, DEPTHS - 1)]++;
+
+		/* Losses are the most of the games and do not change the sums. */
+		if (win == 0) {
+			multipliers.add(0);
+			return;
+		}
+
+		hits++;
+		multipliers.add((double) win / Rules.SCALE);
+		max = Math.max(max, win);
+
+		if (win <= Integer.MAX_VALUE) {
+			square(0, win * win);
+		} else {
+			BigInteger square = BigInteger.valueOf(win)
+					.multiply(BigInteger.valueOf(win));
+			square(square.shiftRight(Long.SIZE).longValue(),
+					square.longValue());
+		}
+	}
+
+	/**
+	 * Add 128 bits value to the sum of the squares.
+	 *
+	 * @param high
+	 *            High word of the value.
+	 * @param low
+	 *            Low word of the value.
+	 */
+	private void square(long high, long low) {
+		this.low += low;
+		this.high += high;
+
+		/* Carry of the unsigned low words. */
+		if (Long.compareUnsigned(this.low, low) < 0) {
+			this.high++;
+		}
+	}
+
+	/**
+	 * Add the results of another statistics object to this one.
+	 *
+	 * @param other
+	 *            The statistics to merge.
+	 */
+	public synchronized void merge(Statistics other) {
+		/*
+		 * Integers are added, so the merge is lossless and in any order. The
+		 * sum is checked first, so an overflow changes nothing.
+		 */
+		sum = Math.addExact(sum, other.sum);
+		numberOfRuns += other.numberOfRuns;
+		square(other.high, other.low);
+		hits += other.hits;
+		max = Math.max(max, other.max);
+		multipliers.merge(other.multipliers);
+		for (int d = 0; d < DEPTHS; d++) {
+			depths[d] += other.depths[d];
+		}
+	}
+
+	/**
+	 * Create consistent copy of the statistics, while other threads are still
+	 * merging into it.
+	 *
+	 * @return A copy of the statistics.
+	 */
+	public synchronized Statistics snapshot() {
+		Statistics result = new Statistics();
+		result.merge(this);
+		return result;
+	}
+
+	/**
+	 * Number of played games getter.
+	 *
+	 * @return The number of games.
+	 */
+	public long numberOfRuns() {
+		return numberOfRuns;
+	}
+
+	/**
+	 * Total win getter.
+	 *
+	 * @return The sum of the wins in fixed-point units of the bet.
+	 */
+	public long sum() {
+		return sum;
+	}
+
+	/**
+	 * Number of games with a win getter.
+	 *
+	 * @return The number of hits.
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Biggest win getter.
+	 *
+	 * @return The biggest win of a single game in fixed-point units of the
+	 *         bet.
+	 */
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * Win multipliers distribution getter.
+	 *
+	 * @return The histogram of the win to bet ratio.
+	 */
+	public Histogram multipliers() {
+		return multipliers;
+	}
+
+	/**
+	 * Cascade depths distribution getter.
+	 *
+	 * @return The number of games by the number of the cascades with wins.
+	 */
+	public long[] depths() {
+		return depths;
+	}
+
+	/**
+	 * Sample variance of the win to bet ratio of a single game. The squares of
+	 * the fixed-point units are scaled back to the bet.
+	 *
+	 * @return The variance or zero if there are less than two games.
+	 */
+	public double variance() {
+		if (numberOfRuns < 2) {
+			return 0;
+		}
+
+		/* The exact sums are combined before any rounding. */
+		BigInteger n = BigInteger.valueOf(numberOfRuns);
+		BigInteger squares = BigInteger.valueOf(high).shiftLeft(Long.SIZE)
+				.add(new BigInteger(Long.toUnsignedString(low)));
+		BigInteger deviations = squares.multiply(n)
+				.subtract(BigInteger.valueOf(sum).pow(2));
+
+		return deviations.doubleValue()
+				/ ((double) numberOfRuns * (numberOfRuns - 1))
+				/ (Rules.SCALE * Rules.SCALE);
+	}
+}
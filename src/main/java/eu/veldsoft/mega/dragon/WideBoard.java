@@ -0,0 +1,239 @@
+package eu.veldsoft.mega.dragon;
+
+/**
+ * Game screen cells as bits of many long values. The cells are numbered column
+ * after column, the same way as in the flat screen array, and the cell with
+ * index c is bit c % 64 of word c / 64. It is used for screens which do not
+ * fit in a single long value.
+ *
+ * @author Todor Balabanov
+ */
+final class WideBoard {
+	/** Number of columns on the screen. */
+	private final int columns;
+
+	/** Number of rows on the screen. */
+	private final int rows;
+
+	/** Number of words in each mask. */
+	private final int words;
+
+	/** All cells of the screen. */
+	private final long all[];
+
+	/** All cells except these in the first row of each column. */
+	private final long notFirst[];
+
+	/** All cells except these in the last row of each column. */
+	private final long notLast[];
+
+	/**
+	 * Constructor with the screen dimensions.
+	 *
+	 * @param columns
+	 *            Number of columns on the screen.
+	 * @param rows
+	 *            Number of rows on the screen.
+	 */
+	public WideBoard(int columns, int rows) {
+		super();
+
+		if (rows >= Long.SIZE) {
+			throw new IllegalArgumentException(
+					"Columns with " + rows + " rows are not supported.");
+		}
+
+		this.columns = columns;
+		this.rows = rows;
+
+		words = (columns * rows + Long.SIZE - 1) / Long.SIZE;
+		all = new long[words];
+		notFirst = new long[words];
+		notLast = new long[words];
+
+		for (int c = 0; c < columns * rows; c++) {
+			all[c >>> 6] |= 1L << c;
+			if (c % rows != 0) {
+				notFirst[c >>> 6] |= 1L << c;
+			}
+			if (c % rows != rows - 1) {
+				notLast[c >>> 6] |= 1L << c;
+			}
+		}
+	}
+
+	/**
+	 * Number of columns getter.
+	 *
+	 * @return The number of columns.
+	 */
+	public int columns() {
+		return columns;
+	}
+
+	/**
+	 * Number of rows getter.
+	 *
+	 * @return The number of rows.
+	 */
+	public int rows() {
+		return rows;
+	}
+
+	/**
+	 * Number of words getter.
+	 *
+	 * @return The number of long values in each mask.
+	 */
+	public int words() {
+		return words;
+	}
+
+	/**
+	 * Word of a mask shifted towards the higher cells.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 * @param w
+	 *            Index of the word.
+	 * @param shift
+	 *            Number of cells to shift, less than 64.
+	 *
+	 * @return The word of the shifted mask.
+	 */
+	private static long up(long[] cells, int w, int shift) {
+		return w == 0 ? cells[w] << shift
+				: (cells[w] << shift) | (cells[w - 1] >>> (Long.SIZE - shift));
+	}
+
+	/**
+	 * Word of a mask shifted towards the lower cells.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 * @param w
+	 *            Index of the word.
+	 * @param shift
+	 *            Number of cells to shift, less than 64.
+	 *
+	 * @return The word of the shifted mask.
+	 */
+	private static long down(long[] cells, int w, int shift) {
+		return w == cells.length - 1 ? cells[w] >>> shift
+				: (cells[w] >>> shift) | (cells[w + 1] << (Long.SIZE - shift));
+	}
+
+	/**
+	 * Cells which are horizontal or vertical neighbors of at least one of the
+	 * given cells.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 * @param result
+	 *            Mask of the neighbors. Some of the given cells can be part of
+	 *            the result. It should be different from the given cells.
+	 */
+	public void neighbors(long[] cells, long[] result) {
+		for (int w = 0; w < words; w++) {
+			result[w] = ((up(cells, w, 1) & notFirst[w])
+					| (down(cells, w, 1) & notLast[w]) | up(cells, w, rows)
+					| down(cells, w, rows)) & all[w];
+		}
+	}
+
+	/**
+	 * Check that a cell has horizontal or vertical neighbors in a mask.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @param cells
+	 *            Mask of cells.
+	 *
+	 * @return True if there is at least one neighbor, false otherwise.
+	 */
+	public boolean touches(int cell, long[] cells) {
+		return (cell % rows != 0 && has(cells, cell - 1))
+				|| (cell % rows != rows - 1 && has(cells, cell + 1))
+				|| (cell >= rows && has(cells, cell - rows))
+				|| (cell + rows < columns * rows && has(cells, cell + rows));
+	}
+
+	/**
+	 * Find connected component by growing the seed cells inside an area.
+	 *
+	 * @param seed
+	 *            Cells where the growing starts.
+	 * @param area
+	 *            Cells where the growing is allowed.
+	 * @param result
+	 *            All cells of the area connected to the seed.
+	 * @param scratch
+	 *            Working mask.
+	 */
+	public void grow(long[] seed, long[] area, long[] result, long[] scratch) {
+		for (int w = 0; w < words; w++) {
+			result[w] = seed[w] & area[w];
+		}
+
+		for (boolean changed = true; changed == true;) {
+			changed = false;
+			neighbors(result, scratch);
+
+			for (int w = 0; w < words; w++) {
+				long grown = result[w] | (scratch[w] & area[w]);
+				changed |= grown != result[w];
+				result[w] = grown;
+			}
+		}
+	}
+
+	/**
+	 * Check a single cell of a mask.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 * @param cell
+	 *            Index of the cell.
+	 *
+	 * @return True if the cell is in the mask, false otherwise.
+	 */
+	public static boolean has(long[] cells, int cell) {
+		return (cells[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Number of cells in a mask.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 *
+	 * @return The number of cells.
+	 */
+	public static int count(long[] cells) {
+		int result = 0;
+
+		for (long word : cells) {
+			result += Long.bitCount(word);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The first cell of a mask.
+	 *
+	 * @param cells
+	 *            Mask of cells.
+	 *
+	 * @return Index of the cell or -1 for empty mask.
+	 */
+	public static int lowest(long[] cells) {
+		for (int w = 0; w < cells.length; w++) {
+			if (cells[w] != 0) {
+				return w * Long.SIZE + Long.numberOfTrailingZeros(cells[w]);
+			}
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,256 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.Arrays;
+
+/**
+ * Clusters detection engine for screens of any size, as bits of many long
+ * values. All clusters are found again on each detection. It gives the same
+ * clusters as the single long engine, so it is also used for checking of the
+ * single long engine.
+ *
+ * @author Todor Balabanov
+ */
+final class WideDetector implements Detector {
+	/** Bit operations over the screen cells. */
+	private final WideBoard board;
+
+	/** Compiled game rules. */
+	private final Rules rules;
+
+	/** Codes of the regular symbols. */
+	private final byte regulars[];
+
+	/** Codes of the wild symbols. */
+	private final byte wildcards[];
+
+	/** Occupancy mask for each symbol code. */
+	private final long masks[][];
+
+	/** All wilds. */
+	private final long wilds[];
+
+	/** Cells where the growing of a component is allowed. */
+	private final long area[];
+
+	/** Cells which are not checked yet. */
+	private final long rest[];
+
+	/** Single cell where the growing starts. */
+	private final long seed[];
+
+	/** Cells of the current component. */
+	private final long component[];
+
+	/** Cells of the current cluster. */
+	private final long cluster[];
+
+	/** Working mask of the growing. */
+	private final long scratch[];
+
+	/** Cells of the clusters by the cell where they start. */
+	private final long starts[][];
+
+	/** Symbols codes of the clusters by the cell where they start. */
+	private final byte symbols[];
+
+	/** Cells where clusters start. */
+	private final long started[];
+
+	/** Clusters found during the detection. */
+	private final Clusters clusters;
+
+	/**
+	 * Constructor with all parameters.
+	 *
+	 * @param board
+	 *            Bit operations over the screen cells.
+	 * @param codes
+	 *            Symbols references by their codes.
+	 * @param rules
+	 *            Compiled game rules.
+	 */
+	public WideDetector(WideBoard board, Symbol[] codes, Rules rules) {
+		super();
+
+		int cells = board.columns() * board.rows();
+		int words = board.words();
+
+		this.board = board;
+		this.rules = rules;
+
+		/* Symbols codes are grouped by kind. */
+		byte regulars[] = new byte[codes.length];
+		byte wildcards[] = new byte[codes.length];
+		int regular = 0;
+		int wild = 0;
+		for (byte k = 0; k < codes.length; k++) {
+			if (codes[k].kind() == Symbol.Kind.WILD) {
+				wildcards[wild++] = k;
+			} else if (codes[k].kind() != Symbol.Kind.NONE) {
+				regulars[regular++] = k;
+			}
+		}
+		this.regulars = Arrays.copyOf(regulars, regular);
+		this.wildcards = Arrays.copyOf(wildcards, wild);
+
+		masks = new long[codes.length][words];
+		wilds = new long[words];
+		area = new long[words];
+		rest = new long[words];
+		seed = new long[words];
+		component = new long[words];
+		cluster = new long[words];
+		scratch = new long[words];
+		starts = new long[cells][words];
+		symbols = new byte[cells];
+		started = new long[words];
+		clusters = new Clusters(cells, words);
+	}
+
+	/**
+	 * Create a cluster, which starts from a particular cell.
+	 *
+	 * @param code
+	 *            Code of the cluster symbol.
+	 * @param start
+	 *            Cell where the cluster starts.
+	 * @param cells
+	 *            Cells of the cluster.
+	 */
+	private void found(byte code, int start, long[] cells) {
+		started[start >>> 6] |= 1L << start;
+		System.arraycopy(cells, 0, starts[start], 0, cells.length);
+		symbols[start] = code;
+	}
+
+	/**
+	 * Grow the component of a single cell inside an area.
+	 *
+	 * @param cell
+	 *            Index of the cell.
+	 * @param area
+	 *            Cells where the growing is allowed.
+	 * @param result
+	 *            All cells of the area connected to the cell.
+	 */
+	private void grow(int cell, long[] area, long[] result) {
+		Arrays.fill(seed, 0);
+		seed[cell >>> 6] = 1L << cell;
+		board.grow(seed, area, result, scratch);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Clusters mark(byte[] view) {
+		int words = board.words();
+
+		/* Symbols occupancy. */
+		for (long mask[] : masks) {
+			Arrays.fill(mask, 0);
+		}
+		for (int c = 0; c < view.length; c++) {
+			masks[view[c]][c >>> 6] |= 1L << c;
+		}
+
+		/* All wilds in a single mask. */
+		Arrays.fill(wilds, 0);
+		for (byte k : wildcards) {
+			for (int w = 0; w < words; w++) {
+				wilds[w] |= masks[k][w];
+			}
+		}
+
+		/* Components of wilds. */
+		System.arraycopy(wilds, 0, rest, 0, words);
+		for (int start = WideBoard.lowest(rest); start != -1;
+				start = WideBoard.lowest(rest)) {
+			/* Single wilds are not clusters. */
+			if (board.touches(start, wilds) == false) {
+				rest[start >>> 6] &= ~(1L << start);
+				continue;
+			}
+
+			grow(start, wilds, component);
+			found(view[start], start, component);
+			for (int w = 0; w < words; w++) {
+				rest[w] &= ~component[w];
+			}
+		}
+
+		for (byte k : regulars) {
+			for (int w = 0; w < words; w++) {
+				area[w] = masks[k][w] | wilds[w];
+			}
+
+			/* Symbols which can not reach the paying size are not grown. */
+			if (WideBoard.count(area) < rules.minimum(k)) {
+				continue;
+			}
+
+			System.arraycopy(masks[k], 0, rest, 0, words);
+			for (int start = WideBoard.lowest(rest); start != -1;
+					start = WideBoard.lowest(rest)) {
+				/* Single symbols are not clusters. */
+				if (board.touches(start, area) == false) {
+					rest[start >>> 6] &= ~(1L << start);
+					continue;
+				}
+
+				grow(start, area, component);
+				int count = 0;
+				int wild = 0;
+				for (int w = 0; w < words; w++) {
+					rest[w] &= ~component[w];
+					count += Long.bitCount(component[w]);
+					wild += Long.bitCount(component[w] & wilds[w]);
+				}
+				if (count >= rules.minimum(k)) {
+					found(k, start, component);
+				}
+
+				/*
+				 * Without enough wilds the component has a single paying
+				 * cluster.
+				 */
+				if (wild + 1 < rules.minimum(k)) {
+					continue;
+				}
+
+				/* The other symbols of the component touching wilds. */
+				for (int w = 0; w < words; w++) {
+					for (long others = component[w] & masks[k][w]; others != 0;
+							others &= others - 1) {
+						int cell = w * Long.SIZE
+								+ Long.numberOfTrailingZeros(others);
+						if (cell == start
+								|| board.touches(cell, wilds) == false) {
+							continue;
+						}
+
+						/* The cell itself is part of the area. */
+						wilds[w] |= 1L << cell;
+						grow(cell, wilds, cluster);
+						wilds[w] &= ~(1L << cell);
+
+						if (WideBoard.count(cluster) >= rules.minimum(k)) {
+							found(k, cell, cluster);
+						}
+					}
+				}
+			}
+		}
+
+		/* Clusters are listed in the order of their start cells. */
+		clusters.clear();
+		for (int w = 0; w < words; w++) {
+			for (; started[w] != 0; started[w] &= started[w] - 1) {
+				int c = w * Long.SIZE + Long.numberOfTrailingZeros(started[w]);
+				clusters.add(symbols[c], starts[c]);
+			}
+		}
+
+		return clusters;
+	}
+}
@@ -0,0 +1,879 @@
+package eu.veldsoft.mega.dragon;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reference engine ported from the first version of the game. The screen is a
+ * matrix of symbols with null references for the empty cells, the clusters
+ * are found by recursive marking, the screen is packed by swaps of the
+ * neighbor cells and the dragons pick their cells by rejection. The only
+ * difference is the source of the pseudo-random numbers, which is given from
+ * outside, so the reference engine and the game engine can play the same game
+ * runs.
+ *
+ * The symbols with their pay tables and the reels are taken from the game
+ * definition. The numbers of wilds, the dragons chances and the dragons
+ * strengths are the constants of the first version. The centers of the
+ * clusters do not change the outcomes, so they are not ported.
+ *
+ * @author Todor Balabanov
+ */
+final class Baseline {
+	/** Number of wilds to place by the size of a winning cluster. */
+	private static final Map<Integer, Integer> CLUSTER_SIZE_TO_WILDS_AMOUNT =
+			new HashMap<Integer, Integer>();
+
+	/** If certain times there is no improvement keep the found wilds. */
+	private static final int REFINEMENT_THRESHOLD = 10;
+
+	/** The probabilities of the dragons, by their order in the enumeration. */
+	static final double PROBABILITIES[] = {0.0, 0.50, 0.35, 0.15};
+
+	/**
+	 * Strengths of the dragons, by their order in the enumeration. The first
+	 * row has the numbers of wilds and the second row has the strengths.
+	 */
+	static final int STRENGTHS[][][] = {{{}, {}}, {{2, 3, 4}, {5, 6, 7}},
+			{{2, 3, 4, 5, 6, 7}, {2, 3, 4, 5, 6, 7}}, {{2, 3, 4}, {2, 3, 4}}};
+
+	/** Static members initialization. */
+	static {
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(5, 1);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(10, 2);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(15, 3);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(20, 4);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(25, 5);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(30, 6);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(35, 7);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(40, 8);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(45, 9);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(50, 10);
+		CLUSTER_SIZE_TO_WILDS_AMOUNT.put(55, 11);
+	}
+
+	/**
+	 * Cluster information as it is kept in the first version.
+	 */
+	static final class Cluster {
+		/** The symbol of the cluster. */
+		private final Symbol symbol;
+
+		/** Number of cells in the cluster. */
+		private final int count;
+
+		/** Coordinates of the cells, ordered by column and then by row. */
+		private final List<SimpleEntry<Integer, Integer>> coordinates;
+
+		/**
+		 * Constructor with all parameters.
+		 *
+		 * @param symbol
+		 *            The symbol of the cluster.
+		 * @param count
+		 *            Number of cells in the cluster.
+		 * @param coordinates
+		 *            Coordinates of the cells.
+		 */
+		Cluster(Symbol symbol, int count,
+				List<SimpleEntry<Integer, Integer>> coordinates) {
+			this.symbol = symbol;
+			this.count = count;
+			this.coordinates = coordinates;
+
+			/* Sorting is very important in order hash code to work. */
+			boolean done = false;
+			while (done == false) {
+				done = true;
+
+				for (int i = 0; i < coordinates.size() - 1; i++) {
+					SimpleEntry<Integer, Integer> a = coordinates.get(i);
+					SimpleEntry<Integer, Integer> b = coordinates.get(i + 1);
+
+					/* When elements are in proper order do nothing. */
+					if (a.getKey() < b.getKey()) {
+						continue;
+					} else if (a.getKey().equals(b.getKey()) == true
+							&& a.getValue() < b.getValue()) {
+						continue;
+					}
+
+					/* Swap elements to be in better order. */
+					coordinates.set(i, b);
+					coordinates.set(i + 1, a);
+
+					/* Loop once again. */
+					done = false;
+				}
+			}
+		}
+
+		/**
+		 * Symbol getter.
+		 *
+		 * @return The symbol of the cluster.
+		 */
+		Symbol symbol() {
+			return symbol;
+		}
+
+		/**
+		 * Size getter.
+		 *
+		 * @return The number of cells in the cluster.
+		 */
+		int count() {
+			return count;
+		}
+
+		/**
+		 * Coordinates getter.
+		 *
+		 * @return The coordinates of the cells.
+		 */
+		List<SimpleEntry<Integer, Integer>> coordinates() {
+			return coordinates;
+		}
+
+		/**
+		 * Select cells for the wilds. Random candidates are generated and the
+		 * one with the biggest total distance between the cells is kept. The
+		 * distance is calculated over all cells of the cluster, so the first
+		 * candidate is always kept, after ten more candidates are generated.
+		 *
+		 * @param prng
+		 *            Pseudo-random numbers generator.
+		 *
+		 * @return The coordinates of the wilds.
+		 */
+		List<SimpleEntry<Integer, Integer>> wilds(Generator prng) {
+			List<SimpleEntry<Integer, Integer>> result = null;
+
+			int number = numberOfWilds(count);
+
+			/* If there is no improvement keep the found configuration. */
+			for (int attempt = 0, max = 0; attempt < REFINEMENT_THRESHOLD;) {
+				List<SimpleEntry<Integer, Integer>> wilds =
+						new ArrayList<SimpleEntry<Integer, Integer>>();
+
+				/* Generate a random candidate configuration. */
+				for (int i = 0; i < number && i < coordinates.size(); i++) {
+					SimpleEntry<Integer, Integer> value = null;
+					do {
+						value = coordinates
+								.get(prng.nextInt(coordinates.size()));
+					} while (wilds.contains(value));
+					wilds.add(value);
+				}
+
+				/* Calculate total distance between the cells. */
+				int distance = 0;
+				for (SimpleEntry<Integer, Integer> a : coordinates) {
+					for (SimpleEntry<Integer, Integer> b : coordinates) {
+						/* The distance between the cell itself is zero. */
+						if (a == b) {
+							continue;
+						}
+
+						/* Euclidean distance but without a square root. */
+						distance += (a.getKey() - b.getKey())
+								* (a.getKey() - b.getKey())
+								+ (a.getValue() - b.getValue())
+										* (a.getValue() - b.getValue());
+					}
+				}
+
+				/* If bigger distance is found keep it as a solution. */
+				if (max < distance) {
+					max = distance;
+					result = wilds;
+					attempt = 0;
+				} else {
+					attempt++;
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return coordinates.hashCode();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+
+			return coordinates.equals(((Cluster) obj).coordinates);
+		}
+	}
+
+	/** Symbols references by their codes. */
+	private final Symbol symbols[];
+
+	/** Reference to wild symbol object. */
+	private final Symbol wild;
+
+	/** Code of the empty cells in the game engine. */
+	private final byte empty;
+
+	/** Array with symbols references as virtual game reels. */
+	private final Symbol reels[][];
+
+	/** Visible screen with the symbols. */
+	private final Symbol view[][];
+
+	/** Current stops on the reels. */
+	private final int stops[];
+
+	/** Number of symbols still to be placed by the green dragon. */
+	private int number = 0;
+
+	/**
+	 * Constructor with the game definition.
+	 *
+	 * @param definition
+	 *            Game definition with the symbols and the reels.
+	 */
+	Baseline(Definition definition) {
+		Symbol wild = null;
+		for (Symbol symbol : definition.codes()) {
+			if (symbol.kind() == Symbol.Kind.WILD) {
+				wild = symbol;
+			}
+		}
+
+		this.symbols = definition.codes();
+		this.wild = wild;
+		this.empty = definition.empty();
+		this.reels = definition.reels();
+		this.view = new Symbol[definition.columns()][definition.rows()];
+		this.stops = new int[definition.columns()];
+	}
+
+	/**
+	 * Number of wilds for a winning cluster.
+	 *
+	 * @param count
+	 *            Size of the cluster.
+	 *
+	 * @return The number of wilds.
+	 */
+	static int numberOfWilds(int count) {
+		int result = 0;
+
+		for (Map.Entry<Integer, Integer> entry : CLUSTER_SIZE_TO_WILDS_AMOUNT
+				.entrySet()) {
+			/* If the cluster is smaller than the table size value skip it. */
+			if (count < entry.getKey()) {
+				continue;
+			}
+
+			/* If the amount is already bigger than the table value skip it. */
+			if (result > entry.getValue()) {
+				continue;
+			}
+
+			result = entry.getValue();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Dragon strength according to how many wilds triggered it.
+	 *
+	 * @param dragon
+	 *            The dragon.
+	 * @param wilds
+	 *            The number of wilds.
+	 *
+	 * @return The strength of the dragon.
+	 */
+	static int strength(Dragon dragon, int wilds) {
+		int strength[][] = STRENGTHS[dragon.ordinal()];
+		int result = 0;
+
+		/* Find the biggest threshold smaller than the number of wilds. */
+		for (int i = 0; i < strength[0].length
+				&& i < strength[1].length; i++) {
+			if (strength[0][i] < wilds) {
+				result = strength[1][i];
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Pick one of the dragons by the cumulative probabilities.
+	 *
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return The dragon.
+	 */
+	static Dragon scramble(Generator prng) {
+		double total = 0;
+		for (double probability : PROBABILITIES) {
+			total += probability;
+		}
+
+		double threshold = prng.nextDouble() * total;
+
+		double level = 0;
+		Dragon result = Dragon.NONE;
+		for (Dragon dragon : Dragon.values()) {
+			if (level < threshold) {
+				result = dragon;
+			}
+
+			level += PROBABILITIES[dragon.ordinal()];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Load the screen from the screen of the game engine.
+	 *
+	 * @param codes
+	 *            Screen with symbols codes, column after column.
+	 */
+	void view(byte[] codes) {
+		for (int i = 0; i < view.length; i++) {
+			for (int j = 0; j < view[i].length; j++) {
+				byte code = codes[i * view[i].length + j];
+				view[i][j] = code == empty ? null : symbols[code];
+			}
+		}
+	}
+
+	/**
+	 * Store the screen in the form of the game engine.
+	 *
+	 * @param codes
+	 *            Output screen with symbols codes, column after column.
+	 */
+	void codes(byte[] codes) {
+		for (int i = 0; i < view.length; i++) {
+			for (int j = 0; j < view[i].length; j++) {
+				codes[i * view[i].length + j] = view[i][j] == null
+						? empty
+						: (byte) view[i][j].id();
+			}
+		}
+	}
+
+	/**
+	 * Reels stops getter.
+	 *
+	 * @return The current stops on the reels.
+	 */
+	int[] stops() {
+		return stops;
+	}
+
+	/**
+	 * Single reels spin to fill the view with symbols.
+	 *
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	void spin(Generator prng) {
+		/* Loop over each reel. */
+		for (int i = 0; i < view.length && i < reels.length; i++) {
+			/* Select random stop position. */
+			int r = stops[i] = prng.nextInt(reels[i].length);
+
+			/* Fill the other positions. */
+			for (int j = 0; j < view[i].length; j++) {
+				view[i][j] = reels[i][(r + j) % reels[i].length];
+			}
+		}
+	}
+
+	/**
+	 * Single reels additional fill the view with symbols.
+	 */
+	void respin() {
+		/* Loop over each reel. */
+		for (int i = 0; i < view.length && i < reels.length; i++) {
+			/* Fill missing symbols. */
+			for (int j = view[i].length - 1; j >= 0; j--) {
+				/* If the cell is full do nothing. */
+				if (view[i][j] != null) {
+					continue;
+				}
+
+				/* Get index of the symbol on the reel. */
+				int r = stops[i];
+				stops[i]--;
+				if (stops[i] < 0) {
+					stops[i] = reels[i].length - 1;
+				}
+
+				/* Refill the screen. */
+				view[i][j] = reels[i][r];
+			}
+		}
+	}
+
+	/**
+	 * Recursive procedure for clusters identification.
+	 *
+	 * @param bitmask
+	 *            Output matrix with markings.
+	 * @param x
+	 *            Coordinates of the central cell.
+	 * @param y
+	 *            Coordinates of the central cell.
+	 * @param symbol
+	 *            The symbol of the cluster.
+	 * @param coordinates
+	 *            List of coordinates for the cells which are part of the
+	 *            cluster.
+	 *
+	 * @return Count of symbols part of the cluster.
+	 */
+	private int mark(int[][] bitmask, int x, int y, Symbol symbol,
+			List<SimpleEntry<Integer, Integer>> coordinates) {
+		/* Borders checking should be done. */
+		if (x < 0 || y < 0 || x >= view.length || y >= view[x].length) {
+			return 0;
+		}
+
+		/* Cells without symbols should not be checked. */
+		if (view[x][y] == null) {
+			return 0;
+		}
+
+		/* Only the symbol of the cluster and the wilds are handled. */
+		if (view[x][y].id() != symbol.id()
+				&& view[x][y].kind() != Symbol.Kind.WILD) {
+			return 0;
+		}
+
+		/* If the cell is already part of another cluster do not handle it. */
+		if (bitmask[x][y] != -1) {
+			return 0;
+		}
+
+		/* Mark as part of a cluster and investigate neighbors. */
+		bitmask[x][y] = symbol.id();
+		coordinates.add(new SimpleEntry<Integer, Integer>(x, y));
+
+		/* Calculate neighbors. */
+		return 1 + mark(bitmask, x + 1, y, symbol, coordinates)
+				+ mark(bitmask, x - 1, y, symbol, coordinates)
+				+ mark(bitmask, x, y + 1, symbol, coordinates)
+				+ mark(bitmask, x, y - 1, symbol, coordinates);
+	}
+
+	/**
+	 * Mark clusters. The marks of the wilds are cleared before each start
+	 * cell, because the wilds participate in many clusters.
+	 *
+	 * @return Clusters information, without duplicates.
+	 */
+	List<Cluster> mark() {
+		/* List of clusters information. */
+		List<Cluster> result = new ArrayList<Cluster>();
+
+		/* Clusters bit mask by id of the symbol. */
+		int bitmask[][] = new int[view.length][view[0].length];
+		for (int i = 0; i < bitmask.length; i++) {
+			for (int j = 0; j < bitmask[i].length; j++) {
+				bitmask[i][j] = -1;
+			}
+		}
+
+		for (int i = 0; i < view.length; i++) {
+			for (int j = 0; j < view[i].length; j++) {
+				/* It is possible view to has null pointers. */
+				if (view[i][j] == null) {
+					continue;
+				}
+
+				/* Clear cluster flags for wilds. */
+				for (int k = 0; k < bitmask.length; k++) {
+					for (int l = 0; l < bitmask[k].length; l++) {
+						if (view[k][l] != null
+								&& view[k][l].kind() == Symbol.Kind.WILD) {
+							bitmask[k][l] = -1;
+						}
+					}
+				}
+
+				/* Mark as part of a cluster and investigate neighbors. */
+				bitmask[i][j] = view[i][j].id();
+				List<SimpleEntry<Integer, Integer>> coordinates =
+						new ArrayList<SimpleEntry<Integer, Integer>>();
+				coordinates.add(new SimpleEntry<Integer, Integer>(i, j));
+
+				/* Calculate the size of the cluster. */
+				int count = 1
+						+ mark(bitmask, i + 1, j, view[i][j], coordinates)
+						+ mark(bitmask, i - 1, j, view[i][j], coordinates)
+						+ mark(bitmask, i, j + 1, view[i][j], coordinates)
+						+ mark(bitmask, i, j - 1, view[i][j], coordinates);
+
+				if (count > 1) {
+					/* Keep track of the information for the found cluster. */
+					Cluster cluster = new Cluster(view[i][j], count,
+							coordinates);
+					if (result.contains(cluster) == false) {
+						result.add(cluster);
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Remove a cluster from the screen.
+	 *
+	 * @param cluster
+	 *            The cluster to be removed.
+	 * @param wilds
+	 *            A cluster of wilds flag.
+	 */
+	private void remove(Cluster cluster, boolean wilds) {
+		for (SimpleEntry<Integer, Integer> cell : cluster.coordinates()) {
+			Symbol symbol = view[cell.getKey()][cell.getValue()];
+
+			/* Do not handle empty cells. */
+			if (symbol == null) {
+				continue;
+			}
+
+			/* Wilds are not removed when the flag is low. */
+			if (symbol.kind() == Symbol.Kind.WILD && wilds == false) {
+				continue;
+			}
+
+			view[cell.getKey()][cell.getValue()] = null;
+		}
+	}
+
+	/**
+	 * Collect win.
+	 *
+	 * @param bet
+	 *            Total bet in the game.
+	 * @param clusters
+	 *            List of clusters information.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return The positive wins.
+	 */
+	List<Double> collect(double bet, List<Cluster> clusters,
+			Generator prng) {
+		List<Double> result = new ArrayList<Double>();
+
+		/* Collect each cluster separately. */
+		for (Cluster cluster : clusters) {
+			double win = bet * cluster.symbol().multiplier(cluster.count());
+
+			if (win > 0) {
+				/* Track only a positive win. */
+				result.add(win);
+
+				/* Remove cluster but keep wilds. */
+				remove(cluster, false);
+
+				/* High paying symbols generate wilds in the cluster space. */
+				if (cluster.symbol().kind() == Symbol.Kind.HIGH) {
+					for (SimpleEntry<Integer, Integer> coordinate : cluster
+							.wilds(prng)) {
+						view[coordinate.getKey()][coordinate.getValue()] = wild;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Pack screen after clusters removal.
+	 */
+	void pack() {
+		/* Do the packing column by column. */
+		for (int i = 0; i < view.length; i++) {
+			boolean done = true;
+
+			for (int j = 0; j < view[i].length - 1; j++) {
+				/* If the cell below is not empty do nothing. */
+				if (view[i][j + 1] != null) {
+					continue;
+				}
+
+				/* There is no need to swap two missing symbols. */
+				if (view[i][j] == null) {
+					continue;
+				}
+
+				done = false;
+				view[i][j + 1] = view[i][j];
+				view[i][j] = null;
+			}
+
+			/* Stay on the same column if packing is not finished. */
+			if (done == false) {
+				i--;
+			}
+		}
+	}
+
+	/**
+	 * Manipulate the game screen according to dragons rules.
+	 *
+	 * @param clusters
+	 *            List of clusters information.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return True if dragons ran, false otherwise.
+	 */
+	boolean dragons(List<Cluster> clusters, Generator prng) {
+		boolean result = false;
+
+		for (Cluster cluster : clusters) {
+			/* If cluster is non wild cluster do nothing. */
+			if (cluster.symbol().kind() != Symbol.Kind.WILD) {
+				continue;
+			}
+
+			/* Execute dragon behavior. */
+			Dragon dragon = scramble(prng);
+			execute(dragon, strength(dragon, cluster.count()), prng);
+
+			/* Remove the cluster with wilds. */
+			remove(cluster, true);
+
+			/* Dragons were available. */
+			result = true;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Execute the behavior of a dragon.
+	 *
+	 * @param dragon
+	 *            The dragon.
+	 * @param strength
+	 *            Strength of the dragon.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	void execute(Dragon dragon, int strength, Generator prng) {
+		switch (dragon) {
+			case GREEN :
+				green(strength, prng);
+				break;
+			case GOLD :
+				gold(strength, prng);
+				break;
+			case RED :
+				red(strength, prng);
+				break;
+			default :
+				break;
+		}
+	}
+
+	/**
+	 * Single move of the green dragon.
+	 *
+	 * @param symbol
+	 *            The symbol to be placed.
+	 * @param x
+	 *            Coordinates of the cell.
+	 * @param y
+	 *            Coordinates of the cell.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	private void move(Symbol symbol, int x, int y, Generator prng) {
+		/* If there is no more strength do not put more symbols. */
+		if (number <= 0) {
+			return;
+		}
+
+		/* Borders checking should be done. */
+		if (x < 0 || y < 0 || x >= view.length || y >= view[x].length) {
+			return;
+		}
+
+		/* Do nothing in empty cells. */
+		if (view[x][y] == null) {
+			return;
+		}
+
+		/* Transform only low paying symbols. */
+		if (view[x][y].kind() == Symbol.Kind.LOW) {
+			/* Place the same symbol. */
+			view[x][y] = symbol;
+			number--;
+		}
+
+		/* Take a random direction. */
+		int dx = prng.nextInt(3) - 1;
+		int dy = prng.nextInt(3) - 1;
+		move(symbol, x - dx, y - dy, prng);
+	}
+
+	/**
+	 * Green dragon behavior.
+	 *
+	 * @param strength
+	 *            Strength of the dragon.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	private void green(int strength, Generator prng) {
+		int i = -1;
+		int j = -1;
+
+		/* Find a high paying symbol. */
+		do {
+			i = prng.nextInt(view.length);
+			j = prng.nextInt(view[i].length);
+		} while (view[i][j] != null && view[i][j].kind() != Symbol.Kind.HIGH);
+
+		/* Start of symbols replacement. */
+		number = strength;
+		move(view[i][j], i, j, prng);
+	}
+
+	/**
+	 * Gold dragon behavior.
+	 *
+	 * @param strength
+	 *            Strength of the dragon.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	private void gold(int strength, Generator prng) {
+		while (strength > 0) {
+			int i = prng.nextInt(view.length);
+			int j = prng.nextInt(view[i].length);
+
+			/* Transform only low paying symbols. */
+			if (view[i][j] != null && view[i][j].kind() != Symbol.Kind.LOW) {
+				continue;
+			}
+
+			view[i][j] = wild;
+
+			strength--;
+		}
+	}
+
+	/**
+	 * Red dragon behavior.
+	 *
+	 * @param strength
+	 *            Strength of the dragon.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 */
+	private void red(int strength, Generator prng) {
+		int i = -1, di = 0;
+		int j = -1, dj = 0;
+
+		/* Select a random direction in which symbol to expand. */
+		do {
+			/* Find a high paying symbol. */
+			do {
+				i = prng.nextInt(view.length);
+				j = prng.nextInt(view[i].length);
+			} while (view[i][j] != null
+					&& view[i][j].kind() != Symbol.Kind.HIGH);
+
+			switch (prng.nextInt(4)) {
+				case 0 :
+					di = -1;
+					dj = -1;
+					break;
+				case 1 :
+					di = +1;
+					dj = -1;
+					break;
+				case 2 :
+					di = -1;
+					dj = +1;
+					break;
+				case 3 :
+					di = +1;
+					dj = +1;
+					break;
+			}
+		} while (i + di * strength < 0 || j + dj * strength < 0
+				|| i + di * strength >= view.length
+				|| j + dj * strength >= view[i].length);
+
+		/* Expand the symbol. */
+		for (int x = i + di * strength; x != i; x -= di) {
+			for (int y = j + dj * strength; y != j; y -= dj) {
+				view[x][y] = view[i][j];
+			}
+		}
+	}
+
+	/**
+	 * Play a single game with all cascades.
+	 *
+	 * @param bet
+	 *            Total bet in the game.
+	 * @param prng
+	 *            Pseudo-random numbers generator.
+	 *
+	 * @return Total win in the game.
+	 */
+	double play(double bet, Generator prng) {
+		double result = 0;
+
+		/* Run the game in the base game spin. */
+		spin(prng);
+
+		/* Run a regular game. */
+		List<Double> paid = null;
+		do {
+			List<Cluster> clusters = mark();
+			paid = collect(bet, clusters, prng);
+			pack();
+			respin();
+
+			/* Register wins. */
+			for (double win : paid) {
+				result += win;
+			}
+
+			dragons(clusters, prng);
+		} while (paid.size() > 0);
+
+		return result;
+	}
+}
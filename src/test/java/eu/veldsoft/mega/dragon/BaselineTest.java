@@ -0,0 +1,468 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Comparison of the game engine with the reference engine of the first
+ * version of the game.
+ *
+ * The stages of each cascade step are compared in lockstep. Both engines
+ * start each random stage from the same pseudo-random numbers and after the
+ * stages, which draw their numbers in a different way, the screen of the game
+ * engine is copied in the reference engine. The stages without randomness
+ * should give exactly the same outcomes.
+ *
+ * The stages which draw their numbers in a different way are compared by
+ * their distributions. A difference is accepted when it is below a number of
+ * standard errors, so the tests do not fail by chance.
+ *
+ * @author Todor Balabanov
+ */
+public class BaselineTest {
+	/** Number of standard errors for an accepted difference. */
+	private static final double ERRORS = 5;
+
+	/** Seed of the pseudo-random numbers. */
+	private static final long SEED = 7;
+
+	/**
+	 * Running mean and variance of a sample.
+	 */
+	private static final class Sample {
+		/** Number of the values. */
+		private long count = 0;
+
+		/** Sum of the values. */
+		private double sum = 0;
+
+		/** Sum of the squares of the values. */
+		private double squares = 0;
+
+		/**
+		 * Register a single value.
+		 *
+		 * @param value
+		 *            The value.
+		 */
+		void add(double value) {
+			count++;
+			sum += value;
+			squares += value * value;
+		}
+
+		/**
+		 * Mean getter.
+		 *
+		 * @return The mean of the values.
+		 */
+		double mean() {
+			return sum / count;
+		}
+
+		/**
+		 * Squared standard error of the mean getter.
+		 *
+		 * @return The variance of the values divided by their number.
+		 */
+		double error() {
+			return Math.max(0, squares / count - mean() * mean()) / count;
+		}
+	}
+
+	/**
+	 * Check that two samples have the same mean.
+	 *
+	 * @param message
+	 *            Description of the samples.
+	 * @param expected
+	 *            Sample of the reference engine.
+	 * @param actual
+	 *            Sample of the game engine.
+	 */
+	private static void same(String message, Sample expected, Sample actual) {
+		double difference = Math.abs(expected.mean() - actual.mean());
+		double error = Math.sqrt(expected.error() + actual.error());
+
+		assertTrue(message + ": " + expected.mean() + " and " + actual.mean()
+				+ ".", difference <= ERRORS * error);
+	}
+
+	/**
+	 * Clusters of the reference engine which are found by the game engine, the
+	 * paying clusters and the clusters of wilds.
+	 *
+	 * @param clusters
+	 *            All clusters of the reference engine.
+	 *
+	 * @return The clusters with effect on the game.
+	 */
+	private static List<Baseline.Cluster> effective(
+			List<Baseline.Cluster> clusters) {
+		List<Baseline.Cluster> result = new ArrayList<Baseline.Cluster>();
+
+		for (Baseline.Cluster cluster : clusters) {
+			if (cluster.symbol().kind() == Symbol.Kind.WILD || cluster
+					.symbol().multiplier(cluster.count()) > 0) {
+				result.add(cluster);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Play game runs with both engines, stage by stage.
+	 *
+	 * @param definition
+	 *            Game definition.
+	 * @param wide
+	 *            Multi-word kernels even if the screen fits in a single long
+	 *            value.
+	 * @param rounds
+	 *            Number of game runs.
+	 */
+	private static void stages(Definition definition, boolean wide,
+			long rounds) {
+		Engine engine = new Engine(definition);
+		Game game = engine.game(wide);
+		Baseline baseline = new Baseline(definition);
+		Generator prng = new SplitMix();
+		Generator reference = new SplitMix();
+		byte wildcard = definition.wildcard();
+		int rows = definition.rows();
+
+		byte view[] = game.view();
+		byte expected[] = new byte[view.length];
+		for (long round = 0; round < rounds; round++) {
+			prng.seed(SEED, round);
+			reference.seed(SEED, round);
+			engine.reels().spin(view, game.stops(), prng);
+			baseline.spin(reference);
+
+			baseline.codes(expected);
+			assertArrayEquals("Spin of game run " + round + ".", expected,
+					view);
+			assertArrayEquals("Stops of game run " + round + ".",
+					baseline.stops(), game.stops());
+
+			for (int step = 0, paid = 1; paid > 0; step++) {
+				String where = " of game run " + round + " at step " + step
+						+ ".";
+
+				/* Same clusters in the same order. */
+				Clusters clusters = game.detector().mark(view);
+				List<Baseline.Cluster> all = baseline.mark();
+				List<Baseline.Cluster> found = effective(all);
+				assertEquals("Clusters" + where, found.size(),
+						clusters.size());
+				for (int i = 0; i < found.size(); i++) {
+					List<SimpleEntry<Integer, Integer>> cells = found.get(i)
+							.coordinates();
+
+					assertEquals("Symbol" + where, found.get(i).symbol().id(),
+							clusters.symbol(i));
+					assertEquals("Size" + where, cells.size(),
+							clusters.count(i));
+					for (int k = 0; k < cells.size(); k++) {
+						assertEquals("Cell" + where,
+								cells.get(k).getKey() * rows
+										+ cells.get(k).getValue(),
+								clusters.cell(i, k));
+					}
+				}
+
+				/* Same wins from the same numbers. */
+				prng.seed(round, 2 * step);
+				reference.seed(round, 2 * step);
+				paid = engine.collect(view, clusters, prng, game.wins(),
+						game.selected());
+				List<Double> wins = baseline.collect(1, all, reference);
+				assertEquals("Wins" + where, wins.size(), paid);
+				for (int i = 0; i < paid; i++) {
+					assertEquals("Win" + where,
+							Rules.units(wins.get(i)), game.wins()[i]);
+				}
+
+				/*
+				 * Only the placed wilds may differ, because the reference
+				 * engine draws more numbers for each winning cluster.
+				 */
+				baseline.codes(expected);
+				for (int c = 0; c < view.length; c++) {
+					if (expected[c] == view[c]) {
+						continue;
+					}
+
+					assertTrue("Removal" + where, expected[c] == wildcard
+							|| view[c] == wildcard);
+					assertTrue("Removal" + where,
+							expected[c] == engine.empty()
+									|| view[c] == engine.empty());
+				}
+				baseline.view(view);
+
+				/* Same refill of the empty cells. */
+				engine.reels().cascade(view, game.stops(), engine.empty());
+				baseline.pack();
+				baseline.respin();
+				baseline.codes(expected);
+				assertArrayEquals("Refill" + where, expected, view);
+				assertArrayEquals("Stops" + where, baseline.stops(),
+						game.stops());
+
+				/* Dragons run for the same clusters. */
+				prng.seed(round, 2 * step + 1);
+				reference.seed(round, 2 * step + 1);
+				assertEquals("Dragons" + where,
+						baseline.dragons(all, reference),
+						engine.dragons(view, clusters, prng));
+				baseline.view(view);
+			}
+		}
+	}
+
+	/**
+	 * Check that the rules of the standard game definition are the same as
+	 * the rules of the first version.
+	 */
+	@Test
+	public void rules() {
+		for (int size[] : new int[][]{{7, 8}, {9, 9}}) {
+			Definition definition = Definition.standard().resize(size[0],
+					size[1]);
+			Rules rules = new Rules(definition);
+			Symbol codes[] = definition.codes();
+			int cells = size[0] * size[1];
+
+			for (int count = 0; count <= cells; count++) {
+				for (byte k = 0; k < codes.length; k++) {
+					assertEquals("Pay of " + codes[k] + " for " + count + ".",
+							Rules.units(codes[k].multiplier(count)),
+							rules.pay(k, count));
+				}
+
+				assertEquals("Wilds for " + count + ".",
+						Baseline.numberOfWilds(count), rules.wilds(count));
+
+				for (Dragon dragon : Dragon.values()) {
+					assertEquals("Strength of " + dragon + " for " + count
+							+ ".", Baseline.strength(dragon, count),
+							rules.strength(dragon, count));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Check the cascade steps on the standard screen with the single long
+	 * kernels.
+	 */
+	@Test
+	public void narrow() {
+		stages(Definition.standard(), false, 20_000);
+	}
+
+	/**
+	 * Check the cascade steps on the standard screen with the multi-word
+	 * kernels.
+	 */
+	@Test
+	public void wide() {
+		stages(Definition.standard(), true, 10_000);
+	}
+
+	/**
+	 * Check the cascade steps on a screen bigger than a single long value.
+	 */
+	@Test
+	public void big() {
+		stages(Definition.standard().resize(9, 9), false, 5_000);
+	}
+
+	/**
+	 * Check the chances of the dragons to appear.
+	 */
+	@Test
+	public void scramble() {
+		Rules rules = new Rules(Definition.standard());
+		Generator prng = new SplitMix();
+		Generator reference = new SplitMix();
+		Dragon dragons[] = Dragon.values();
+		long expected[] = new long[dragons.length];
+		long actual[] = new long[dragons.length];
+		int draws = 1_000_000;
+
+		prng.seed(SEED, 0);
+		reference.seed(SEED, 1);
+		for (int i = 0; i < draws; i++) {
+			expected[Baseline.scramble(reference).ordinal()]++;
+			actual[rules.scramble(prng).ordinal()]++;
+		}
+
+		for (Dragon dragon : dragons) {
+			double p = Baseline.PROBABILITIES[dragon.ordinal()];
+			double error = Math.sqrt(2 * p * (1 - p) / draws);
+
+			assertTrue("Chance of " + dragon + ".",
+					Math.abs(expected[dragon.ordinal()]
+							- actual[dragon.ordinal()])
+							/ (double) draws <= ERRORS * error);
+		}
+	}
+
+	/**
+	 * Check that the reference dragon can act on a screen. The reference
+	 * dragons search for their cells without a limit.
+	 *
+	 * @param dragon
+	 *            The dragon.
+	 * @param strength
+	 *            Strength of the dragon.
+	 * @param view
+	 *            Game screen with symbols codes, column after column.
+	 * @param rows
+	 *            Number of rows on the screen.
+	 * @param kinds
+	 *            Kinds of the symbols by their codes.
+	 *
+	 * @return True if the reference dragon finishes, false otherwise.
+	 */
+	private static boolean finishes(Dragon dragon, int strength, byte[] view,
+			int rows, Symbol.Kind[] kinds) {
+		int columns = view.length / rows;
+		int count = 0;
+
+		for (int c = 0; c < view.length; c++) {
+			Symbol.Kind kind = kinds[view[c]];
+
+			if (dragon == Dragon.GOLD && (kind == Symbol.Kind.NONE
+					|| kind == Symbol.Kind.LOW)) {
+				count++;
+			}
+			if (dragon == Dragon.GOLD || (kind != Symbol.Kind.NONE
+					&& kind != Symbol.Kind.HIGH)) {
+				continue;
+			}
+
+			/* The red dragon needs a diagonal which stays on the screen. */
+			int i = c / rows;
+			int j = c % rows;
+			if (dragon == Dragon.GREEN || ((i >= strength
+					|| i + strength < columns)
+					&& (j >= strength || j + strength < rows))) {
+				return true;
+			}
+		}
+
+		return dragon == Dragon.GOLD && count >= strength;
+	}
+
+	/**
+	 * Check the behaviors of the dragons. Both engines act on the same
+	 * screens, with some empty cells, and the numbers and the positions of
+	 * the changed cells are compared.
+	 */
+	@Test
+	public void behaviors() {
+		Definition definition = Definition.standard();
+		Engine engine = new Engine(definition);
+		Baseline baseline = new Baseline(definition);
+		Symbol.Kind kinds[] = definition.kinds();
+		int rows = definition.rows();
+		Generator prng = new SplitMix();
+		Generator reference = new SplitMix();
+
+		byte screen[] = new byte[definition.columns() * rows];
+		byte view[] = new byte[screen.length];
+		byte expected[] = new byte[screen.length];
+		int stops[] = new int[definition.columns()];
+		for (Dragon dragon : new Dragon[]{Dragon.GREEN, Dragon.GOLD,
+				Dragon.RED}) {
+			for (int strength : Baseline.STRENGTHS[dragon.ordinal()][1]) {
+				Sample counts[] = {new Sample(), new Sample()};
+				Sample positions[] = {new Sample(), new Sample()};
+
+				for (int n = 0; n < 20_000; n++) {
+					prng.seed(SEED, n);
+					engine.reels().spin(screen, stops, prng);
+					for (int c = 0; c < screen.length; c++) {
+						if (prng.nextInt(8) == 0) {
+							screen[c] = definition.empty();
+						}
+					}
+					if (finishes(dragon, strength, screen, rows,
+							kinds) == false) {
+						continue;
+					}
+
+					System.arraycopy(screen, 0, view, 0, screen.length);
+					dragon.execute(view, rows, kinds, strength, prng);
+
+					baseline.view(screen);
+					reference.seed(SEED + 1, n);
+					baseline.execute(dragon, strength, reference);
+					baseline.codes(expected);
+
+					/* The changed cells and their positions. */
+					byte results[][] = {expected, view};
+					for (int r = 0; r < results.length; r++) {
+						int count = 0;
+						int position = 0;
+						for (int c = 0; c < screen.length; c++) {
+							if (results[r][c] != screen[c]) {
+								count++;
+								position += c;
+							}
+						}
+
+						counts[r].add(count);
+						positions[r].add(position);
+					}
+				}
+
+				same("Changed cells by " + dragon + " " + strength,
+						counts[0], counts[1]);
+				same("Positions of the cells by " + dragon + " " + strength,
+						positions[0], positions[1]);
+			}
+		}
+	}
+
+	/**
+	 * Check the return to player and the hit frequency of the full game. Both
+	 * engines play different game runs, so the samples are independent.
+	 */
+	@Test
+	public void outcomes() {
+		Definition definition = Definition.standard();
+		Engine engine = new Engine(definition);
+		Game game = engine.game(false);
+		Baseline baseline = new Baseline(definition);
+		Generator reference = new SplitMix();
+
+		Sample wins[] = {new Sample(), new Sample()};
+		Sample hits[] = {new Sample(), new Sample()};
+		for (long round = 0; round < 400_000; round++) {
+			reference.seed(SEED + 1, round);
+			double expected = baseline.play(1, reference);
+			double actual = (double) engine.play(game, SEED, round)
+					/ Rules.SCALE;
+
+			wins[0].add(expected);
+			wins[1].add(actual);
+			hits[0].add(expected > 0 ? 1 : 0);
+			hits[1].add(actual > 0 ? 1 : 0);
+		}
+
+		same("Return to player", wins[0], wins[1]);
+		same("Hit frequency", hits[0], hits[1]);
+	}
+}
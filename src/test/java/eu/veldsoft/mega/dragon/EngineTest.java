@@ -0,0 +1,136 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Stopping conditions of the simulations. A simulation stops after the total
+ * number of game runs, when the confidence interval of the RTP is narrow
+ * enough or when the time budget is spent.
+ *
+ * @author Todor Balabanov
+ */
+public class EngineTest {
+	/** Engine of the original game. */
+	private static final Engine ENGINE = new Engine(Definition.standard());
+
+	/**
+	 * Configuration with a fixed seed and without stopping conditions.
+	 *
+	 * @param rounds
+	 *            Total number of game runs.
+	 * @param threads
+	 *            Number of workers.
+	 *
+	 * @return The configuration.
+	 */
+	private static Configuration configuration(long rounds, int threads) {
+		Configuration result = new Configuration();
+
+		result.seed(7);
+		result.rounds(rounds);
+		result.threads(threads);
+		result.report(0);
+
+		return result;
+	}
+
+	/**
+	 * Check that a simulation without other stopping conditions plays all game
+	 * runs with the same outcome for any number of workers.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	@Test
+	public void rounds() throws InterruptedException, ExecutionException {
+		Result single = ENGINE.run(configuration(30_000, 1));
+		Result many = ENGINE.run(configuration(30_000, 4));
+
+		assertEquals(30_000, single.numberOfRuns());
+		assertEquals(30_000, many.numberOfRuns());
+		assertEquals(single.wonMoney(), many.wonMoney(), 0);
+		assertEquals(single.deviation(), many.deviation(), 0);
+	}
+
+	/**
+	 * Check that a simulation stops after the first wave with a narrow enough
+	 * confidence interval and that it is reproducible.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	@Test
+	public void precision() throws InterruptedException, ExecutionException {
+		Result results[] = new Result[2];
+
+		for (int i = 0; i < results.length; i++) {
+			Configuration configuration = configuration(10_000_000, 1 + 3 * i);
+			configuration.precision(0.002);
+			configuration.check(10_000);
+
+			results[i] = ENGINE.run(configuration);
+
+			assertTrue(results[i].halfWidth() <= 0.002);
+			assertTrue(results[i].numberOfRuns() < 10_000_000);
+			assertEquals(0, results[i].numberOfRuns() % 10_000);
+		}
+
+		assertEquals(results[0].numberOfRuns(), results[1].numberOfRuns());
+		assertEquals(results[0].wonMoney(), results[1].wonMoney(), 0);
+	}
+
+	/**
+	 * Check that a simulation stops soon after its time budget inside a single
+	 * wave of game runs.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	@Test
+	public void seconds() throws InterruptedException, ExecutionException {
+		Configuration configuration = configuration(Long.MAX_VALUE / 2, 2);
+		configuration.seconds(1);
+
+		long start = System.nanoTime();
+		Result result = ENGINE.run(configuration);
+		long time = System.nanoTime() - start;
+
+		assertTrue(result.numberOfRuns() > 0);
+		assertTrue(result.numberOfRuns() < Long.MAX_VALUE / 2);
+		assertTrue("Stopped after " + time + " ns.",
+				time < TimeUnit.SECONDS.toNanos(5));
+	}
+
+	/**
+	 * Check that there are no progress reports when the report interval is
+	 * zero.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	@Test
+	public void reports() throws InterruptedException, ExecutionException {
+		AtomicLong reports = new AtomicLong();
+
+		Result result = ENGINE.run(configuration(30_000, 2),
+				partial -> reports.incrementAndGet());
+
+		assertEquals(30_000, result.numberOfRuns());
+		assertEquals(0, reports.get());
+	}
+}
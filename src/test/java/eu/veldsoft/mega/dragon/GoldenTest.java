@@ -0,0 +1,226 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Golden outcomes of the game engine. The outcomes of all cascade steps of
+ * fixed seeds are folded in digests, so a rewrite of the engine can be checked
+ * over millions of game runs without the reference engine. The different
+ * kernels are also compared with each other after each cascade step.
+ *
+ * @author Todor Balabanov
+ */
+public class GoldenTest {
+	/**
+	 * Known digests of the game outcomes. Each row has the seed, the number of
+	 * columns, the number of rows, the number of game runs and the digest.
+	 */
+	private static final long DIGESTS[][] = {
+			{7L, 7, 8, 1_000_000, 0x1cdbeca3cf55e3f5L},
+			{42L, 7, 8, 1_000_000, 0x62727bf4a7966a2aL},
+			{7L, 8, 8, 200_000, 0x923a02c434216211L},
+			{7L, 9, 9, 200_000, 0x8f3eff1c5248feeaL},};
+
+	/**
+	 * Game engine with the digest of its outcomes.
+	 */
+	private static final class Trace {
+		/** Engine of the game. */
+		private final Engine engine;
+
+		/** Seed of the pseudo-random numbers. */
+		private final long seed;
+
+		/** Game state of the engine. */
+		private final Game game;
+
+		/** Outcome of the last cascade step. */
+		private long step = 0;
+
+		/** Outcome of all game runs so far. */
+		private long digest = 0;
+
+		/**
+		 * Constructor with all parameters.
+		 *
+		 * @param engine
+		 *            Engine of the game.
+		 * @param seed
+		 *            Seed of the pseudo-random numbers.
+		 * @param wide
+		 *            Multi-word kernels even if the screen fits in a single
+		 *            long value.
+		 */
+		Trace(Engine engine, long seed, boolean wide) {
+			this.engine = engine;
+			this.seed = seed;
+			game = engine.game(wide);
+		}
+
+		/**
+		 * Start a game run.
+		 *
+		 * @param round
+		 *            Index of the game run.
+		 */
+		void start(long round) {
+			engine.start(game, seed, round);
+			step = mix(round, digest(game.view(), game.stops()));
+			digest = mix(digest, step);
+		}
+
+		/**
+		 * Single cascade step with the digest of its outcome.
+		 *
+		 * @return Number of the paid clusters.
+		 */
+		int cascade() {
+			int paid = engine.cascade(game);
+
+			/* The clusters of the step are kept by the game state. */
+			Clusters clusters = game.clusters();
+			long hash = clusters.size();
+			for (int i = 0; i < clusters.size(); i++) {
+				hash = mix(hash, clusters.symbol(i));
+				for (int w = 0; w < clusters.words(); w++) {
+					hash = mix(hash, clusters.cells(i, w));
+				}
+			}
+
+			hash = mix(hash, paid);
+			for (int i = 0; i < paid; i++) {
+				hash = mix(hash, game.wins()[i]);
+			}
+			hash = mix(hash, game.win());
+
+			/* Dragons changes are part of the screen after the step. */
+			step = mix(hash, digest(game.view(), game.stops()));
+			digest = mix(digest, step);
+
+			return paid;
+		}
+	}
+
+	/**
+	 * Mix a value in a hash.
+	 *
+	 * @param hash
+	 *            Hash so far.
+	 * @param value
+	 *            Value to be added.
+	 *
+	 * @return The new hash.
+	 */
+	private static long mix(long hash, long value) {
+		long result = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return result ^ (result >>> 29);
+	}
+
+	/**
+	 * Hash of the screen and the reels stops.
+	 *
+	 * @param view
+	 *            Screen with the symbols codes.
+	 * @param stops
+	 *            Reels stops.
+	 *
+	 * @return The hash.
+	 */
+	private static long digest(byte[] view, int[] stops) {
+		long result = view.length;
+
+		for (byte code : view) {
+			result = mix(result, code);
+		}
+		for (int stop : stops) {
+			result = mix(result, stop);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Digest of the outcomes of a number of game runs.
+	 *
+	 * @param trace
+	 *            Game engine with its digest.
+	 * @param rounds
+	 *            Number of game runs.
+	 *
+	 * @return The digest.
+	 */
+	private static long digest(Trace trace, long rounds) {
+		for (long round = 0; round < rounds; round++) {
+			trace.start(round);
+
+			while (trace.cascade() > 0) {
+				/* Cascades continue while there are wins. */
+			}
+		}
+
+		return trace.digest;
+	}
+
+	/**
+	 * Play the same game runs with two engines and compare them after each
+	 * cascade step.
+	 *
+	 * @param expected
+	 *            Reference engine.
+	 * @param actual
+	 *            Candidate engine.
+	 * @param rounds
+	 *            Number of game runs.
+	 */
+	private static void compare(Trace expected, Trace actual, long rounds) {
+		for (long round = 0; round < rounds; round++) {
+			expected.start(round);
+			actual.start(round);
+
+			for (int step = 0, paid = 1; paid > 0; step++) {
+				assertEquals("Game run " + round + " at step " + step + ": "
+						+ Arrays.toString(expected.game.view()) + " and "
+						+ Arrays.toString(actual.game.view()) + ".",
+						expected.step, actual.step);
+
+				/* The number of paid clusters is part of the step outcome. */
+				paid = expected.cascade() + actual.cascade();
+			}
+		}
+	}
+
+	/**
+	 * Check the digests of the default engine.
+	 */
+	@Test
+	public void digests() {
+		for (long row[] : DIGESTS) {
+			Engine engine = new Engine(Definition.standard()
+					.resize((int) row[1], (int) row[2]));
+
+			assertEquals("Seed " + row[0] + ", " + row[1] + "x" + row[2]
+					+ ", " + row[3] + " runs.", row[4],
+					digest(new Trace(engine, row[0], false), row[3]));
+		}
+	}
+
+	/**
+	 * Compare the single long kernels with the multi-word kernels, which are
+	 * the simplest implementation in the game.
+	 */
+	@Test
+	public void kernels() {
+		for (int size[] : new int[][]{{7, 8}, {8, 8}, {9, 9}}) {
+			Definition definition = Definition.standard().resize(size[0],
+					size[1]);
+			Engine engine = new Engine(definition);
+
+			compare(new Trace(engine, 7, true), new Trace(engine, 7, false),
+					100_000);
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Bounds of the buckets of the logarithmic histograms.
+ *
+ * @author Todor Balabanov
+ */
+public class HistogramTest {
+	/**
+	 * Index of the only bucket of a single value.
+	 *
+	 * @param value
+	 *            The value.
+	 *
+	 * @return The index of the bucket.
+	 */
+	private static int bucket(double value) {
+		Histogram histogram = new Histogram();
+		histogram.add(value);
+
+		for (int i = 0; i < histogram.size(); i++) {
+			if (histogram.count(i) == 1) {
+				return i;
+			}
+		}
+
+		throw new AssertionError("Value " + value + " is lost.");
+	}
+
+	/**
+	 * Check that each value is between the bounds of its bucket, including
+	 * the values which are too small or too big for the regular buckets.
+	 */
+	@Test
+	public void bounds() {
+		double values[] = {0, Double.MIN_VALUE, 1e-9, Math.scalb(1.0, -17),
+				Math.scalb(1.0, -16), 0.1, 0.75, 1, 1.9, 888, 12345.6789,
+				Math.scalb(1.0, 32) - 1, Math.scalb(1.0, 32), 1e12,
+				Double.MAX_VALUE};
+
+		for (double value : values) {
+			int index = bucket(value);
+			Histogram histogram = new Histogram();
+
+			assertTrue(value + " is below " + histogram.lower(index),
+					histogram.lower(index) <= value);
+			assertTrue(value + " is not below " + histogram.upper(index),
+					value < histogram.upper(index) || value == 0);
+		}
+
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.upper(0), 0);
+		assertEquals(1, bucket(1e-9));
+		assertEquals(0, histogram.lower(1), 0);
+		assertEquals(histogram.size() - 1, bucket(1e12));
+		assertEquals(Double.POSITIVE_INFINITY,
+				histogram.upper(histogram.size() - 1), 0);
+
+		/* The regular buckets follow each other without gaps. */
+		for (int i = 1; i < histogram.size() - 1; i++) {
+			assertEquals(histogram.upper(i), histogram.lower(i + 1), 0);
+		}
+	}
+}
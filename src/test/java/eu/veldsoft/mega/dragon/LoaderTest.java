@@ -0,0 +1,363 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Reading and writing of the game definitions. The text form of the original
+ * game should give the tables of the first version of the game, the binary
+ * form should give the same definition as the text form and corrupted input
+ * should be rejected with an exception instead of a broken definition.
+ *
+ * @author Todor Balabanov
+ */
+public class LoaderTest {
+	/** Offset of the number of symbols in the binary form. */
+	private static final int SYMBOLS = 4 * Integer.BYTES;
+
+	/**
+	 * Offset of the kind of the first symbol in the binary form. The name of
+	 * the first symbol is NONE, with two bytes of length before it.
+	 */
+	private static final int KIND = SYMBOLS + Integer.BYTES + 2
+			+ "NONE".length();
+
+	/**
+	 * Text form of the original game.
+	 *
+	 * @return The text of the definition.
+	 *
+	 * @throws IOException
+	 *             If the resource can not be read.
+	 */
+	private static String text() throws IOException {
+		try (InputStream in = Definition.class
+				.getResourceAsStream("standard.tsv")) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Parse a text form.
+	 *
+	 * @param text
+	 *            The text of the definition.
+	 *
+	 * @return The game definition.
+	 *
+	 * @throws IOException
+	 *             If the text can not be read.
+	 */
+	private static Definition parse(String text) throws IOException {
+		return Loader.parse(new ByteArrayInputStream(
+				text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Binary form of a definition.
+	 *
+	 * @param definition
+	 *            The game definition.
+	 *
+	 * @return The bytes of the binary form.
+	 *
+	 * @throws IOException
+	 *             If the binary form can not be written.
+	 */
+	private static byte[] binary(Definition definition) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Loader.write(definition, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Read a binary form.
+	 *
+	 * @param bytes
+	 *            The bytes of the binary form.
+	 *
+	 * @return The game definition.
+	 *
+	 * @throws IOException
+	 *             If the bytes can not be read.
+	 */
+	private static Definition read(byte[] bytes) throws IOException {
+		return Loader.read(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Check that a text form is rejected.
+	 *
+	 * @param message
+	 *            Description of the corruption.
+	 * @param text
+	 *            The corrupted text.
+	 *
+	 * @throws IOException
+	 *             If the text can not be read.
+	 */
+	private static void rejected(String message, String text)
+			throws IOException {
+		try {
+			parse(text);
+			fail(message + " is accepted.");
+		} catch (IllegalArgumentException exception) {
+			/* The definition is not valid. */
+		}
+	}
+
+	/**
+	 * Check that a binary form is rejected.
+	 *
+	 * @param message
+	 *            Description of the corruption.
+	 * @param bytes
+	 *            The corrupted bytes.
+	 *
+	 * @throws IOException
+	 *             If the bytes can not be read.
+	 */
+	private static void rejected(String message, byte[] bytes)
+			throws IOException {
+		try {
+			read(bytes);
+			fail(message + " is accepted.");
+		} catch (IllegalArgumentException exception) {
+			/* The definition is not valid. */
+		}
+	}
+
+	/**
+	 * Compare two definitions field by field.
+	 *
+	 * @param expected
+	 *            The expected definition.
+	 * @param actual
+	 *            The actual definition.
+	 */
+	private static void compare(Definition expected, Definition actual) {
+		assertEquals("Columns", expected.columns(), actual.columns());
+		assertEquals("Rows", expected.rows(), actual.rows());
+
+		assertEquals("Symbols", expected.codes().length,
+				actual.codes().length);
+		for (int k = 0; k < expected.codes().length; k++) {
+			Symbol symbol = expected.codes()[k];
+			assertEquals("Name", symbol.name(), actual.codes()[k].name());
+			assertEquals("Kind of " + symbol, symbol.kind(),
+					actual.codes()[k].kind());
+			assertEquals("Pays of " + symbol, symbol.pays(),
+					actual.codes()[k].pays());
+		}
+
+		assertEquals("Reels", expected.reels().length, actual.reels().length);
+		for (int i = 0; i < expected.reels().length; i++) {
+			assertArrayEquals("Reel " + i, ids(expected.reels()[i]),
+					ids(actual.reels()[i]));
+		}
+
+		assertArrayEquals("Wilds", expected.wilds(), actual.wilds());
+		assertArrayEquals("Chances", expected.chances(), actual.chances(), 0);
+		for (int d = 0; d < expected.strengths().length; d++) {
+			assertArrayEquals("Strengths", expected.strengths()[d],
+					actual.strengths()[d]);
+		}
+	}
+
+	/**
+	 * Codes of the symbols on a reel.
+	 *
+	 * @param reel
+	 *            Symbols on the reel.
+	 *
+	 * @return The codes.
+	 */
+	private static int[] ids(Symbol[] reel) {
+		int result[] = new int[reel.length];
+
+		for (int j = 0; j < reel.length; j++) {
+			result[j] = reel[j].id();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Digest of the outcomes of a number of game runs of a definition.
+	 *
+	 * @param definition
+	 *            The game definition.
+	 * @param rounds
+	 *            Number of game runs.
+	 *
+	 * @return The digest.
+	 */
+	private static long digest(Definition definition, long rounds) {
+		Engine engine = new Engine(definition);
+		Game game = engine.game(false);
+		long result = 0;
+
+		for (long round = 0; round < rounds; round++) {
+			result = (result ^ engine.play(game, 7, round))
+					* 0x9E3779B97F4A7C15L;
+			result = (result ^ Arrays.hashCode(game.view()))
+					* 0x9E3779B97F4A7C15L;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check the text form of the original game against the tables of the
+	 * first version of the game.
+	 *
+	 * @throws IOException
+	 *             If the resource can not be read.
+	 */
+	@Test
+	public void standard() throws IOException {
+		Definition definition = parse(text());
+
+		compare(Definition.standard(), definition);
+
+		assertEquals(7, definition.columns());
+		assertEquals(8, definition.rows());
+		assertEquals(11, definition.codes().length);
+		assertEquals(Symbol.Kind.NONE, definition.codes()[0].kind());
+		assertEquals(Symbol.Kind.WILD, definition.codes()[10].kind());
+		assertEquals("LOW01", definition.codes()[1].name());
+		assertEquals(0.1, definition.codes()[1].multiplier(5), 0);
+		assertEquals(888, definition.codes()[9].multiplier(25), 0);
+
+		for (int count = 0; count <= 7 * 8; count++) {
+			assertEquals("Wilds for " + count + ".",
+					Baseline.numberOfWilds(count), definition.wilds(count));
+			for (Dragon dragon : Dragon.values()) {
+				assertEquals("Strength of " + dragon + " for " + count + ".",
+						Baseline.strength(dragon, count),
+						definition.strength(dragon, count));
+			}
+		}
+		assertArrayEquals(new double[]{0.0, 0.50, 0.35, 0.15},
+				definition.chances(), 0);
+
+		/* The first line of the reels section. */
+		String first[] = {"LOW03", "LOW04", "LOW01", "LOW03", "LOW02",
+				"LOW02", "LOW03"};
+		for (int i = 0; i < first.length; i++) {
+			assertEquals(first[i], definition.reels()[i][0].name());
+		}
+	}
+
+	/**
+	 * Check that the binary form gives the same definition and the same game
+	 * outcomes as the text form.
+	 *
+	 * @throws IOException
+	 *             If the definition can not be written or read.
+	 */
+	@Test
+	public void roundTrip() throws IOException {
+		Definition expected = Definition.standard();
+		byte bytes[] = binary(expected);
+
+		assertTrue(Loader.binary(new ByteArrayInputStream(bytes)));
+		assertFalse(Loader.binary(new ByteArrayInputStream(
+				text().getBytes(StandardCharsets.UTF_8))));
+
+		Definition actual = read(bytes);
+		compare(expected, actual);
+		assertArrayEquals("Second round trip", bytes, binary(actual));
+		assertEquals("Digest", digest(expected, 20_000),
+				digest(actual, 20_000));
+	}
+
+	/**
+	 * Check that corrupted binary forms are rejected.
+	 *
+	 * @throws IOException
+	 *             If the definition can not be written.
+	 */
+	@Test
+	public void corruptedBinary() throws IOException {
+		byte bytes[] = binary(Definition.standard());
+
+		byte magic[] = bytes.clone();
+		magic[0] ^= 1;
+		assertFalse(Loader.binary(new ByteArrayInputStream(magic)));
+		rejected("Bad magic number", magic);
+
+		for (int length : new int[]{0, SYMBOLS, KIND, bytes.length / 2,
+				bytes.length - 1}) {
+			try {
+				read(Arrays.copyOf(bytes, length));
+				fail("Truncated input of " + length + " bytes is accepted.");
+			} catch (EOFException exception) {
+				/* The stream ends too early. */
+			}
+		}
+
+		for (byte kind : new byte[]{-1, (byte) Symbol.Kind.values().length,
+				Byte.MAX_VALUE}) {
+			byte kinds[] = bytes.clone();
+			kinds[KIND] = kind;
+			rejected("Kind code " + kind, kinds);
+		}
+
+		for (int count : new int[]{-1, Integer.MIN_VALUE, Byte.MAX_VALUE + 1,
+				Integer.MAX_VALUE}) {
+			byte counts[] = bytes.clone();
+			ByteBuffer.wrap(counts).putInt(SYMBOLS, count);
+			rejected("Number of symbols " + count, counts);
+		}
+
+		/* The last byte is a symbol code on the last reel. */
+		byte codes[] = bytes.clone();
+		codes[codes.length - 1] = Byte.MAX_VALUE;
+		rejected("Unknown symbol code on a reel", codes);
+	}
+
+	/**
+	 * Check that invalid text forms are rejected.
+	 *
+	 * @throws IOException
+	 *             If the resource can not be read.
+	 */
+	@Test
+	public void invalidText() throws IOException {
+		String text = text();
+
+		rejected("Unknown symbol name", text.replaceFirst(
+				"LOW03\tLOW04\tLOW01", "LOW03\tLOW99\tLOW01"));
+		rejected("Unknown kind", text.replace("1\tLOW01\tLOW\t",
+				"1\tLOW01\tLOWEST\t"));
+		rejected("Missing empty symbol",
+				text.replace("0\tNONE\tNONE", "0\tNONE\tLOW"));
+		rejected("Missing wild symbol",
+				text.replace("10\tWILD\tWILD", "10\tWILD\tHIGH"));
+		rejected("Pay which is not exact", text.replace("1\tLOW01\tLOW\t5:0.1",
+				"1\tLOW01\tLOW\t5:0.00005"));
+
+		/* Three lines of the reels section are less than the eight rows. */
+		int start = text.indexOf("LOW03\tLOW04\tLOW01");
+		int end = start;
+		for (int line = 0; line < 3; line++) {
+			end = text.indexOf('\n', end) + 1;
+		}
+		rejected("Reels shorter than the rows", text.substring(0, end));
+	}
+}
@@ -0,0 +1,311 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Constraints of the reel strips shuffling. The groups of the high and the low
+ * paying symbols should not be longer than their limits, two groups of the
+ * same symbol should never be next to each other, the last and the first group
+ * of the strip included, and a strip without valid order should be rejected.
+ *
+ * @author Todor Balabanov
+ */
+public class ShufflerTest {
+	/** Kinds of the symbols by their codes. */
+	private static final Symbol.Kind KINDS[] = {Symbol.Kind.LOW,
+			Symbol.Kind.LOW, Symbol.Kind.HIGH, Symbol.Kind.HIGH,
+			Symbol.Kind.WILD};
+
+	/**
+	 * Size limit of the groups of a symbol.
+	 *
+	 * @param code
+	 *            Code of the symbol.
+	 * @param high
+	 *            Size of the high symbols group.
+	 * @param low
+	 *            Size of the low symbols group.
+	 *
+	 * @return The longest group of the symbol.
+	 */
+	private static int limit(int code, int high, int low) {
+		if (KINDS[code] == Symbol.Kind.HIGH) {
+			return Math.max(1, high);
+		} else if (KINDS[code] == Symbol.Kind.LOW) {
+			return Math.max(1, low);
+		}
+
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Number of groups of each symbol, as the equal symbols are split by the
+	 * shuffler.
+	 *
+	 * @param strip
+	 *            Symbols codes of the reel strip.
+	 * @param high
+	 *            Size of the high symbols group.
+	 * @param low
+	 *            Size of the low symbols group.
+	 *
+	 * @return The number of groups by symbol code.
+	 */
+	private static int[] groups(byte[] strip, int high, int low) {
+		int result[] = new int[KINDS.length];
+
+		for (byte code : strip) {
+			result[code]++;
+		}
+
+		for (int k = 0; k < result.length; k++) {
+			int limit = limit(k, high, low);
+			result[k] = result[k] / limit + (result[k] % limit == 0 ? 0 : 1);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Search for a circular order of the groups without two groups of the
+	 * same symbol next to each other.
+	 *
+	 * @param groups
+	 *            Number of groups left by symbol code.
+	 * @param rest
+	 *            Number of groups left.
+	 * @param previous
+	 *            Code of the symbol of the last placed group.
+	 * @param first
+	 *            Code of the symbol of the first group.
+	 *
+	 * @return True if a valid order exists, false otherwise.
+	 */
+	private static boolean search(int[] groups, int rest, int previous,
+			int first) {
+		if (rest == 0) {
+			return previous != first;
+		}
+
+		for (int k = 0; k < groups.length; k++) {
+			if (groups[k] == 0 || k == previous) {
+				continue;
+			}
+
+			groups[k]--;
+			boolean found = search(groups, rest - 1, k,
+					first == -1 ? k : first);
+			groups[k]++;
+
+			if (found == true) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Check with exhaustive search that a valid order of the groups exists.
+	 *
+	 * @param strip
+	 *            Symbols codes of the reel strip.
+	 * @param high
+	 *            Size of the high symbols group.
+	 * @param low
+	 *            Size of the low symbols group.
+	 *
+	 * @return True if a valid order exists, false otherwise.
+	 */
+	private static boolean possible(byte[] strip, int high, int low) {
+		int groups[] = groups(strip, high, low);
+		int total = Arrays.stream(groups).sum();
+
+		/* A single group has no order. */
+		if (total < 2) {
+			return true;
+		}
+
+		return search(groups, total, -1, -1);
+	}
+
+	/**
+	 * Check the constraints of a shuffled strip.
+	 *
+	 * @param original
+	 *            Symbols codes of the strip before the shuffle.
+	 * @param strip
+	 *            Symbols codes of the strip after the shuffle.
+	 * @param high
+	 *            Size of the high symbols group.
+	 * @param low
+	 *            Size of the low symbols group.
+	 */
+	private static void valid(byte[] original, byte[] strip, int high,
+			int low) {
+		String message = Arrays.toString(original) + " as "
+				+ Arrays.toString(strip);
+
+		/* The same symbols are on the strip. */
+		byte expected[] = original.clone();
+		byte actual[] = strip.clone();
+		Arrays.sort(expected);
+		Arrays.sort(actual);
+		assertArrayEquals(message, expected, actual);
+
+		/* Start of a run, which is not continued from the end of the strip. */
+		int n = strip.length;
+		int start = 0;
+		while (start < n && strip[start] == strip[(start + n - 1) % n]) {
+			start++;
+		}
+
+		/* A single run, which is valid only as a single group. */
+		if (start == n) {
+			int code = strip[0];
+			assertTrue(message, n <= limit(code, high, low));
+			return;
+		}
+
+		/* Each run is a single group, so the runs are counted as groups. */
+		int runs[] = new int[KINDS.length];
+		for (int i = 0; i < n;) {
+			int code = strip[(start + i) % n];
+			int length = 0;
+			while (i < n && strip[(start + i) % n] == code) {
+				length++;
+				i++;
+			}
+
+			assertTrue(message, length <= limit(code, high, low));
+			runs[code]++;
+		}
+
+		assertArrayEquals(message, groups(original, high, low), runs);
+	}
+
+	/**
+	 * Check that the groups are not longer than their limits and that a long
+	 * run of a symbol is split in groups, which are separated.
+	 */
+	@Test
+	public void limits() {
+		Shuffler shuffler = new Shuffler(KINDS, 12);
+		Generator prng = new SplitMix();
+
+		byte original[] = {2, 2, 2, 2, 2, 2, 0, 0, 0, 0, 1, 1};
+		for (int round = 0; round < 1_000; round++) {
+			prng.seed(7, round);
+
+			byte strip[] = original.clone();
+			shuffler.shuffle(strip, 2, 3, prng);
+			valid(original, strip, 2, 3);
+		}
+	}
+
+	/**
+	 * Check that the last and the first group of the strip are never of the
+	 * same symbol. Two groups of a symbol and one group of another have a
+	 * valid order in a line, but not in a circle.
+	 */
+	@Test
+	public void wrapAround() {
+		Shuffler shuffler = new Shuffler(KINDS, 4);
+		Generator prng = new SplitMix();
+
+		for (int round = 0; round < 1_000; round++) {
+			prng.seed(7, round);
+
+			byte strip[] = {0, 0, 1, 1};
+			shuffler.shuffle(strip, 1, 1, prng);
+
+			assertTrue(Arrays.toString(strip), strip[0] != strip[1]
+					&& strip[1] != strip[2] && strip[2] != strip[3]
+					&& strip[3] != strip[0]);
+		}
+
+		try {
+			shuffler.shuffle(new byte[]{0, 0, 1}, 1, 1, prng);
+			fail("Groups next to each other over the end of the strip.");
+		} catch (IllegalArgumentException exception) {
+			/* No valid order exists. */
+		}
+	}
+
+	/**
+	 * Check that a strip without valid order is rejected and that a single
+	 * group is kept as it is.
+	 */
+	@Test
+	public void impossible() {
+		Shuffler shuffler = new Shuffler(KINDS, 6);
+		Generator prng = new SplitMix();
+		prng.seed(7, 0);
+
+		for (byte strip[] : new byte[][]{{2, 2, 2, 2, 2, 2}, {0, 0, 0, 1},
+				{2, 2, 2, 2, 4, 1}}) {
+			try {
+				shuffler.shuffle(strip, 1, 1, prng);
+				fail(Arrays.toString(strip) + " is accepted.");
+			} catch (IllegalArgumentException exception) {
+				/* No valid order exists. */
+			}
+		}
+
+		byte strip[] = {4, 4, 4, 4};
+		shuffler.shuffle(strip, 1, 1, prng);
+		assertArrayEquals(new byte[]{4, 4, 4, 4}, strip);
+	}
+
+	/**
+	 * Compare the shuffler with an exhaustive search on random small strips.
+	 * Each shuffled strip should be valid and the exception should be thrown
+	 * exactly when no valid order exists.
+	 */
+	@Test
+	public void bruteForce() {
+		Shuffler shuffler = new Shuffler(KINDS, 10);
+		Generator prng = new SplitMix();
+		Generator random = new SplitMix();
+		int rejected = 0;
+
+		for (int round = 0; round < 200_000; round++) {
+			random.seed(11, round);
+			prng.seed(7, round);
+
+			/* Strips of a few symbols, so the search is short. */
+			byte original[] = new byte[1 + random.nextInt(10)];
+			int symbols = 1 + random.nextInt(KINDS.length);
+			for (int i = 0; i < original.length; i++) {
+				original[i] = (byte) random.nextInt(symbols);
+			}
+			int high = random.nextInt(4);
+			int low = random.nextInt(4);
+
+			byte strip[] = original.clone();
+			boolean expected = possible(original, high, low);
+			try {
+				shuffler.shuffle(strip, high, low, prng);
+			} catch (IllegalArgumentException exception) {
+				assertTrue(Arrays.toString(original) + " is rejected.",
+						expected == false);
+				rejected++;
+				continue;
+			}
+
+			assertTrue(Arrays.toString(original) + " is accepted.",
+					expected == true);
+			valid(original, strip, high, low);
+		}
+
+		/* Both cases are covered. */
+		assertTrue(rejected > 0);
+		assertTrue(rejected < 200_000);
+	}
+}
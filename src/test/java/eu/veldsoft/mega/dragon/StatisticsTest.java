@@ -0,0 +1,263 @@
+package eu.veldsoft.mega.dragon;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+/**
+ * Merging of the statistics of the workers. The counters and the histograms
+ * of many workers, merged in any order, should be the same as the counters and
+ * the histograms of a single worker. The sums should stay exact near the limits
+ * of their words and an overflow should be an error.
+ *
+ * @author Todor Balabanov
+ */
+public class StatisticsTest {
+	/** Engine of the original game. */
+	private static final Engine ENGINE = new Engine(Definition.standard());
+
+	/** Seed of the pseudo-random numbers. */
+	private static final long SEED = 7;
+
+	/**
+	 * Counters of a histogram.
+	 *
+	 * @param histogram
+	 *            The histogram.
+	 *
+	 * @return The counters of all buckets.
+	 */
+	private static long[] counts(Histogram histogram) {
+		long result[] = new long[histogram.size()];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = histogram.count(i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compare all counters of two statistics.
+	 *
+	 * @param expected
+	 *            The expected statistics.
+	 * @param actual
+	 *            The actual statistics.
+	 */
+	private static void compare(Statistics expected, Statistics actual) {
+		assertEquals("Runs", expected.numberOfRuns(), actual.numberOfRuns());
+		assertEquals("Sum", expected.sum(), actual.sum());
+		assertEquals("Hits", expected.hits(), actual.hits());
+		assertEquals("Max", expected.max(), actual.max());
+		assertArrayEquals("Depths", expected.depths(), actual.depths());
+		assertArrayEquals("Multipliers", counts(expected.multipliers()),
+				counts(actual.multipliers()));
+		assertEquals("Variance",
+				Double.doubleToLongBits(expected.variance()),
+				Double.doubleToLongBits(actual.variance()));
+	}
+
+	/**
+	 * Play a range of game runs.
+	 *
+	 * @param game
+	 *            Game state.
+	 * @param from
+	 *            Index of the first game run.
+	 * @param to
+	 *            Index of the game run after the last one.
+	 * @param statistics
+	 *            Statistics where the results are accumulated.
+	 */
+	private static void play(Game game, long from, long to,
+			Statistics statistics) {
+		for (long round = from; round < to; round++) {
+			statistics.add(ENGINE.play(game, SEED, round), game.depth());
+		}
+	}
+
+	/**
+	 * Check that ranges of game runs of different sizes, merged in different
+	 * orders, give the same counters and histograms as a single range.
+	 */
+	@Test
+	public void merge() {
+		Game game = ENGINE.game(false);
+		Statistics expected = new Statistics();
+		play(game, 0, 50_000, expected);
+
+		/* Ranges of random sizes, as the chunks of the workers. */
+		Random random = new Random(SEED);
+		List<Statistics> parts = new ArrayList<Statistics>();
+		for (long from = 0, to = 0; from < 50_000; from = to) {
+			to = Math.min(50_000, from + 1 + random.nextInt(5_000));
+			Statistics part = new Statistics();
+			play(game, from, to, part);
+			parts.add(part);
+		}
+
+		for (int order = 0; order < 5; order++) {
+			Collections.shuffle(parts, random);
+
+			Statistics actual = new Statistics();
+			for (Statistics part : parts) {
+				actual.merge(part);
+			}
+
+			compare(expected, actual);
+		}
+	}
+
+	/**
+	 * Check that simulations with one and with many workers give the same
+	 * results.
+	 *
+	 * @throws InterruptedException
+	 *             If the waiting thread is interrupted.
+	 * @throws ExecutionException
+	 *             If a worker fails.
+	 */
+	@Test
+	public void threads() throws InterruptedException, ExecutionException {
+		Result results[] = new Result[2];
+
+		for (int i = 0; i < results.length; i++) {
+			Configuration configuration = new Configuration();
+			configuration.seed(SEED);
+			configuration.rounds(50_000);
+			configuration.threads(1 + 3 * i);
+			configuration.report(0);
+
+			results[i] = ENGINE.run(configuration);
+		}
+
+		assertEquals(results[0].rtp(), results[1].rtp(), 0);
+		assertEquals(results[0].hitFrequency(), results[1].hitFrequency(), 0);
+		assertEquals(results[0].maxWin(), results[1].maxWin(), 0);
+		assertEquals(results[0].deviation(), results[1].deviation(), 0);
+		assertArrayEquals(results[0].depths(), results[1].depths());
+		assertArrayEquals(counts(results[0].multipliers()),
+				counts(results[1].multipliers()));
+	}
+
+	/**
+	 * Check that parts with wins of very different sizes, merged in all
+	 * orders, give a bit-identical variance.
+	 */
+	@Test
+	public void order() {
+		Random random = new Random(SEED);
+		Statistics parts[] = new Statistics[4];
+		Statistics expected = new Statistics();
+
+		for (int p = 0; p < parts.length; p++) {
+			parts[p] = new Statistics();
+			for (int i = 0; i < 1_000; i++) {
+				/* Small wins and wins above the range of the integers. */
+				long win = random.nextInt(3) == 0 ? 0
+						: 1L + random.nextInt(1 << (4 + 8 * p));
+				if (p == parts.length - 1) {
+					win *= 10_000;
+				}
+
+				parts[p].add(win, i % 3);
+				expected.add(win, i % 3);
+			}
+		}
+
+		/* All permutations of the parts by Heap's algorithm. */
+		int counters[] = new int[parts.length];
+		for (int i = 0; i < parts.length;) {
+			Statistics actual = new Statistics();
+			for (Statistics part : parts) {
+				actual.merge(part);
+			}
+			compare(expected, actual);
+
+			if (counters[i] < i) {
+				int j = i % 2 == 0 ? 0 : counters[i];
+				Statistics swap = parts[j];
+				parts[j] = parts[i];
+				parts[i] = swap;
+				counters[i]++;
+				i = 0;
+			} else {
+				counters[i] = 0;
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Check the carry from the low word into the high word of the sum of the
+	 * squares. Equal wins have exactly zero variance, which is lost if the
+	 * carry is lost.
+	 */
+	@Test
+	public void carry() {
+		/* Squares just below 2^62 and 2^64 and above 2^64. */
+		for (long win : new long[]{Integer.MAX_VALUE, 4_000_000_000L,
+				5_000_000_000L, 1L << 40}) {
+			Statistics statistics = new Statistics();
+			for (int i = 0; i < 8; i++) {
+				statistics.add(win, 1);
+			}
+			assertEquals("Wins of " + win, 0, statistics.variance(), 0);
+
+			/* The carry of the merge. */
+			Statistics merged = new Statistics();
+			for (int i = 0; i < 4; i++) {
+				merged.merge(statistics);
+			}
+			assertEquals("Merged wins of " + win, 0, merged.variance(), 0);
+		}
+
+		/* Two games have variance of the half of the squared difference. */
+		Statistics statistics = new Statistics();
+		statistics.add(5_000_000_000L, 1);
+		statistics.add(1, 1);
+		double difference = (5_000_000_000L - 1) / (double) Rules.SCALE;
+		assertEquals(difference * difference / 2, statistics.variance(),
+				1e-12 * difference * difference);
+	}
+
+	/**
+	 * Check that an overflow of the sum of the wins is an error, both when a
+	 * game is added and when statistics are merged, and that the statistics
+	 * are not changed by the failed operation.
+	 */
+	@Test
+	public void overflow() {
+		long big = Long.MAX_VALUE / 2 + 1;
+
+		Statistics statistics = new Statistics();
+		statistics.add(big, 1);
+		Statistics copy = statistics.snapshot();
+		try {
+			statistics.add(big, 1);
+			fail("The sum of " + big + " twice is accepted.");
+		} catch (ArithmeticException exception) {
+			/* The sum does not fit in a long. */
+		}
+		compare(copy, statistics);
+
+		Statistics other = new Statistics();
+		other.add(big, 2);
+		try {
+			statistics.merge(other);
+			fail("The merge of " + big + " twice is accepted.");
+		} catch (ArithmeticException exception) {
+			/* The sum does not fit in a long. */
+		}
+		compare(copy, statistics);
+	}
+}